@@ -0,0 +1,558 @@
+package at.sps.processor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.*;
+import javax.lang.model.type.PrimitiveType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.*;
+
+@SupportedAnnotationTypes( { MapperProcessor.MAPPER_COLUMN, MapperProcessor.REBUILDER_COLUMNS } )
+public class MapperProcessor extends AbstractProcessor {
+
+  // Annotations and types of the plugin, referenced by name since they're compiled alongside the models
+  static final String MAPPER_COLUMN = "at.sps.core.orm.MapperColumn";
+  static final String REBUILDER_COLUMNS = "at.sps.core.orm.RebuilderColumns";
+  private static final String INDEX = "at.sps.core.orm.Index";
+  private static final String INDEXES = "at.sps.core.orm.Indexes";
+  private static final String MODEL = "at.sps.core.orm.MappableModel";
+
+  // Models which got their schema already, later rounds may hand them out again
+  private final Set< String > generated = new HashSet<>();
+
+  @Override
+  public SourceVersion getSupportedSourceVersion() {
+    return SourceVersion.latestSupported();
+  }
+
+  @Override
+  public boolean process( Set< ? extends TypeElement > annotations, RoundEnvironment env ) {
+    // Every class declaring mapped fields is a model
+    Set< TypeElement > models = new LinkedHashSet<>();
+    for( TypeElement annotation : annotations ) {
+      for( Element e : env.getElementsAnnotatedWith( annotation ) )
+        models.add( ( TypeElement ) e.getEnclosingElement() );
+    }
+
+    for( TypeElement model : models ) {
+      if( !generated.add( model.getQualifiedName().toString() ) )
+        continue;
+
+      try {
+        generate( model );
+      } catch ( IOException e ) {
+        error( model, "Could not write the schema of " + model.getSimpleName() + ": " + e.getMessage() );
+      }
+    }
+
+    // Other processors (Lombok) still need to see these annotations
+    return false;
+  }
+
+  /**
+   * Generate the schema of a model, named after it with a Schema suffix within the same package
+   * @param model Model to generate for
+   */
+  private void generate( TypeElement model ) throws IOException {
+    TypeElement base = processingEnv.getElementUtils().getTypeElement( MODEL );
+    if( base != null && !processingEnv.getTypeUtils().isSubtype( erasure( model.asType() ), erasure( base.asType() ) ) ) {
+      error( model, model.getSimpleName() + " has mapped fields but doesn't extend MappableModel!" );
+      return;
+    }
+
+    List< Column > columns = new ArrayList<>();
+    List< VariableElement > holders = new ArrayList<>();
+    List< String > indexes = new ArrayList<>();
+
+    // Composite indexes are declared on the model
+    for( AnnotationMirror idx : mirrors( model, INDEX ) )
+      indexes.add( makeIndex( idx, null ) );
+
+    boolean valid = true;
+    for( VariableElement f : ElementFilter.fieldsIn( model.getEnclosedElements() ) ) {
+      AnnotationMirror mc = mirror( f, MAPPER_COLUMN );
+      AnnotationMirror rc = mirror( f, REBUILDER_COLUMNS );
+
+      // Not annotated or wrongly annotated, this field is not of interest
+      if( ( mc == null ) == ( rc == null ) )
+        continue;
+
+      valid &= checkAccessors( model, f );
+
+      if( rc != null ) {
+        holders.add( f );
+        valid &= findHolderColumns( f, rc, columns );
+        continue;
+      }
+
+      // If it would be a varchar but no length has been specified, make it text
+      Map< String, Object > values = values( mc );
+      String name = ( String ) values.get( "name" );
+      String length = ( String ) values.get( "length" );
+      String explicit = ( String ) values.get( "type" );
+      String type = sqlType( f );
+      type = length.isEmpty() && type.equals( "VARCHAR" ) ? "TEXT" : type;
+
+      Column col = new Column(
+        name.isEmpty() ? f.getSimpleName().toString() : name, type, length,
+        ( Boolean ) values.get( "key" ), ( Boolean ) values.get( "nullable" ), explicit.isEmpty(), f, null
+      );
+      columns.add( col );
+
+      // Single indexes are declared on the field, unless they list their columns
+      for( AnnotationMirror idx : mirrors( f, INDEX ) )
+        indexes.add( makeIndex( idx, col.name ) );
+    }
+
+    // Errors have been reported on the fields already
+    if( !valid )
+      return;
+
+    write( model, columns, holders, indexes );
+  }
+
+  /**
+   * Find the columns of a holder field, which lists the fields of it's type to map
+   * @param holder Field holding the nested object
+   * @param rc Annotation of the holder field
+   * @param columns Columns to append to
+   * @return True if all listed fields could be resolved, false otherwise
+   */
+  private boolean findHolderColumns( VariableElement holder, AnnotationMirror rc, List< Column > columns ) {
+    TypeElement type = ( TypeElement ) processingEnv.getTypeUtils().asElement( holder.asType() );
+    if( type == null ) {
+      error( holder, "Fields of " + holder.getSimpleName() + " can only be mapped from a class!" );
+      return false;
+    }
+
+    Map< String, VariableElement > fields = new HashMap<>();
+    for( VariableElement f : ElementFilter.fieldsIn( type.getEnclosedElements() ) )
+      fields.put( f.getSimpleName().toString(), f );
+
+    Map< String, Object > values = values( rc );
+    List< String > names = strings( values.get( "fields" ) );
+    List< String > colNames = strings( values.get( "names" ) );
+    List< String > lengths = strings( values.get( "lengths" ) );
+    List< Boolean > uniques = booleans( values.get( "uniques" ) );
+    List< Boolean > nullables = booleans( values.get( "nullables" ) );
+
+    boolean valid = true;
+    for( int j = 0; j < names.size(); j++ ) {
+      VariableElement f = fields.get( names.get( j ) );
+      if( f == null ) {
+        error( holder, type.getSimpleName() + " has no field named " + names.get( j ) + "!" );
+        valid = false;
+        continue;
+      }
+
+      valid &= checkAccessors( type, f );
+
+      // If it would be a varchar but no length has been specified, make it text
+      String length = lengths.size() > j ? lengths.get( j ) : "";
+      String sqlType = sqlType( f );
+      sqlType = length.isEmpty() && sqlType.equals( "VARCHAR" ) ? "TEXT" : sqlType;
+
+      columns.add( new Column(
+        colNames.size() > j ? colNames.get( j ) : names.get( j ), sqlType, length,
+        uniques.size() > j && uniques.get( j ), nullables.size() > j && nullables.get( j ), true, f, holder
+      ) );
+    }
+
+    return valid;
+  }
+
+  /**
+   * Write the schema's source file
+   * @param model Model of the schema
+   * @param columns Columns in order
+   * @param holders Fields holding nested objects
+   * @param indexes Index constructions in order
+   */
+  private void write( TypeElement model, List< Column > columns, List< VariableElement > holders, List< String > indexes ) throws IOException {
+    String pkg = processingEnv.getElementUtils().getPackageOf( model ).getQualifiedName().toString();
+    String name = model.getSimpleName() + "Schema";
+    String type = model.getSimpleName().toString();
+
+    try ( PrintWriter out = new PrintWriter( processingEnv.getFiler().createSourceFile( pkg.isEmpty() ? name : pkg + "." + name, model ).openWriter() ) ) {
+      if( !pkg.isEmpty() )
+        out.println( "package " + pkg + ";" );
+
+      out.println();
+      out.println( "import at.sps.core.orm.Instantiator;" );
+      out.println( "import at.sps.core.orm.ModelSchema;" );
+      out.println( "import at.sps.core.orm.SchemaColumn;" );
+      out.println( "import at.sps.core.orm.SchemaIndex;" );
+      out.println();
+      out.println( "import java.util.Arrays;" );
+      out.println( "import java.util.Collections;" );
+      out.println( "import java.util.List;" );
+      out.println();
+      out.println( "/**" );
+      out.println( " * Schema of {@link " + type + "}, generated from it's annotations by " + getClass().getName() + ", don't edit" );
+      out.println( " */" );
+      out.println( "public final class " + name + " implements ModelSchema< " + type + " > {" );
+      out.println();
+
+      // Metadata, in the order the mapper expects the columns
+      out.println( "  private static final List< SchemaColumn > COLUMNS = " + listOf( columns.stream().map( Column::construct ).toArray( String[]::new ) ) + ";" );
+      out.println();
+      out.println( "  private static final List< SchemaIndex > INDEXES = " + listOf( indexes.toArray( new String[ 0 ] ) ) + ";" );
+      out.println();
+
+      for( VariableElement holder : holders ) {
+        String holderType = erasure( holder.asType() ).toString();
+        out.println( "  private static final Instantiator< " + holderType + " > " + constant( holder ) + " = new Instantiator<>( " + holderType + ".class );" );
+        out.println();
+      }
+
+      out.println( "  @Override" );
+      out.println( "  public List< SchemaColumn > getColumns() {" );
+      out.println( "    return COLUMNS;" );
+      out.println( "  }" );
+      out.println();
+      out.println( "  @Override" );
+      out.println( "  public List< SchemaIndex > getIndexes() {" );
+      out.println( "    return INDEXES;" );
+      out.println( "  }" );
+      out.println();
+      out.println( "  @Override" );
+      out.println( "  public void createHolders( " + type + " model ) {" );
+      for( VariableElement holder : holders )
+        out.println( "    model." + setter( holder ) + "( " + constant( holder ) + ".newInstance() );" );
+      out.println( "  }" );
+      out.println();
+
+      // Reader of every column, straight calls to the getters
+      out.println( "  @Override" );
+      out.println( "  public Object get( " + type + " model, int column ) {" );
+      out.println( "    switch( column ) {" );
+      for( int i = 0; i < columns.size(); i++ ) {
+        Column col = columns.get( i );
+        out.println( "      case " + i + ":" );
+
+        if( col.holder == null ) {
+          out.println( "        return model." + getter( col.field ) + "();" );
+          continue;
+        }
+
+        out.println( "        if( model." + getter( col.holder ) + "() == null )" );
+        out.println( "          return null;" );
+        out.println( "        return model." + getter( col.holder ) + "()." + getter( col.field ) + "();" );
+      }
+      out.println( "      default:" );
+      out.println( "        throw new IndexOutOfBoundsException( \"" + type + " has no column \" + column + \"!\" );" );
+      out.println( "    }" );
+      out.println( "  }" );
+      out.println();
+
+      // Writer of every column, straight calls to the setters
+      out.println( "  @Override" );
+      out.println( "  @SuppressWarnings( \"unchecked\" )" );
+      out.println( "  public void set( " + type + " model, int column, Object value ) {" );
+      out.println( "    switch( column ) {" );
+      for( int i = 0; i < columns.size(); i++ ) {
+        Column col = columns.get( i );
+        String target = col.holder == null ? "model" : "model." + getter( col.holder ) + "()";
+        out.println( "      case " + i + ":" );
+        out.println( "        " + target + "." + setter( col.field ) + "( ( " + boxed( col.field.asType() ) + " ) value );" );
+        out.println( "        return;" );
+      }
+      out.println( "      default:" );
+      out.println( "        throw new IndexOutOfBoundsException( \"" + type + " has no column \" + column + \"!\" );" );
+      out.println( "    }" );
+      out.println( "  }" );
+      out.println( "}" );
+    }
+  }
+
+  /**
+   * Make sure a field can be read and written by the generated schema, either through
+   * declared methods or through ones Lombok is going to add
+   * @param owner Type declaring the field
+   * @param f Field to check
+   * @return True if both accessors exist, false otherwise
+   */
+  private boolean checkAccessors( TypeElement owner, VariableElement f ) {
+    boolean valid = true;
+
+    if( !hasMethod( owner, getter( f ), 0 ) && !hasLombok( owner, f, "lombok.Getter" ) ) {
+      error( f, "Mapped field " + f.getSimpleName() + " needs a getter named " + getter( f ) + "!" );
+      valid = false;
+    }
+
+    if( !hasMethod( owner, setter( f ), 1 ) && !hasLombok( owner, f, "lombok.Setter" ) ) {
+      error( f, "Mapped field " + f.getSimpleName() + " needs a setter named " + setter( f ) + "!" );
+      valid = false;
+    }
+
+    return valid;
+  }
+
+  /**
+   * Check whether or not a type offers a method
+   * @param owner Type to search in, including it's supertypes
+   * @param name Name of the method
+   * @param params Number of parameters
+   * @return True if found, false otherwise
+   */
+  private boolean hasMethod( TypeElement owner, String name, int params ) {
+    for( ExecutableElement m : ElementFilter.methodsIn( processingEnv.getElementUtils().getAllMembers( owner ) ) ) {
+      if( m.getSimpleName().contentEquals( name ) && m.getParameters().size() == params && !m.getModifiers().contains( Modifier.PRIVATE ) )
+        return true;
+    }
+    return false;
+  }
+
+  /**
+   * Check whether or not Lombok is going to add an accessor to a field
+   * @param owner Type declaring the field
+   * @param f Field to check
+   * @param annotation Lombok annotation adding the accessor
+   * @return True if the field or it's type is annotated, false otherwise
+   */
+  private boolean hasLombok( TypeElement owner, VariableElement f, String annotation ) {
+    return mirror( f, annotation ) != null || mirror( owner, annotation ) != null || mirror( owner, "lombok.Data" ) != null;
+  }
+
+  /**
+   * Get the SQL datatype from a field's type, just like the mapper does at runtime
+   * @param f Target field to translate type from
+   * @return SQL datatype, VARCHAR is fallback
+   */
+  private String sqlType( VariableElement f ) {
+    // Explicitly specified type wins
+    AnnotationMirror mc = mirror( f, MAPPER_COLUMN );
+    if( mc != null && !values( mc ).get( "type" ).equals( "" ) )
+      return ( String ) values( mc ).get( "type" );
+
+    switch( boxed( f.asType() ) ) {
+      case "java.lang.Integer":
+        return "INT";
+
+      case "java.lang.Long":
+        return "BIGINT";
+
+      case "java.lang.Double":
+        return "DOUBLE";
+
+      case "java.lang.Float":
+        return "FLOAT";
+
+      // Fallback is just text
+      default:
+        return "VARCHAR";
+    }
+  }
+
+  /**
+   * Make the construction of an index declaration
+   * @param idx Annotation of the index
+   * @param column Column of the annotated field, null if declared on the model
+   * @return Source of the construction
+   */
+  private String makeIndex( AnnotationMirror idx, String column ) {
+    Map< String, Object > values = values( idx );
+    List< String > columns = strings( values.get( "columns" ) );
+    if( columns.isEmpty() && column != null )
+      columns = Collections.singletonList( column );
+
+    StringJoiner cols = new StringJoiner( ", ", "new String[] { ", " }" ).setEmptyValue( "new String[ 0 ]" );
+    for( String col : columns )
+      cols.add( literal( col ) );
+
+    StringJoiner prefixes = new StringJoiner( ", ", "new int[] { ", " }" ).setEmptyValue( "new int[ 0 ]" );
+    for( AnnotationValue v : list( values.get( "prefixes" ) ) )
+      prefixes.add( String.valueOf( v.getValue() ) );
+
+    return "new SchemaIndex( " + literal( ( String ) values.get( "name" ) ) + ", " + cols + ", " + prefixes + " )";
+  }
+
+  /**
+   * Make an unmodifiable list of constructions
+   * @param elements Source of every element
+   * @return Source of the list
+   */
+  private String listOf( String[] elements ) {
+    if( elements.length == 0 )
+      return "Collections.emptyList()";
+
+    return "Collections.unmodifiableList( Arrays.asList(\n    " + String.join( ",\n    ", elements ) + "\n  ) )";
+  }
+
+  /**
+   * Get the name of the getter Lombok would generate for a field
+   * @param f Field to get the getter for
+   * @return Name of the getter
+   */
+  private String getter( VariableElement f ) {
+    return ( f.asType().getKind() == TypeKind.BOOLEAN ? "is" : "get" ) + capitalize( f );
+  }
+
+  /**
+   * Get the name of the setter Lombok would generate for a field
+   * @param f Field to get the setter for
+   * @return Name of the setter
+   */
+  private String setter( VariableElement f ) {
+    return "set" + capitalize( f );
+  }
+
+  private String capitalize( VariableElement f ) {
+    String name = f.getSimpleName().toString();
+    return Character.toUpperCase( name.charAt( 0 ) ) + name.substring( 1 );
+  }
+
+  /**
+   * Get the name of the constant holding the instantiator of a holder field
+   * @param holder Field holding the nested object
+   * @return Name of the constant, like LOCATION_HOLDER
+   */
+  private String constant( VariableElement holder ) {
+    return holder.getSimpleName().toString().replaceAll( "([a-z0-9])([A-Z])", "$1_$2" ).toUpperCase() + "_HOLDER";
+  }
+
+  /**
+   * Get the source name of a type, primitives are boxed and generics erased
+   * @param type Type to name
+   * @return Qualified name
+   */
+  private String boxed( TypeMirror type ) {
+    if( type.getKind().isPrimitive() )
+      return processingEnv.getTypeUtils().boxedClass( ( PrimitiveType ) type ).getQualifiedName().toString();
+
+    return erasure( type ).toString();
+  }
+
+  /**
+   * Get the source of a class literal
+   * @param type Type to reference
+   * @return Class literal, generics erased
+   */
+  private String classLiteral( TypeMirror type ) {
+    return ( type.getKind().isPrimitive() ? type.toString() : erasure( type ).toString() ) + ".class";
+  }
+
+  private TypeMirror erasure( TypeMirror type ) {
+    return processingEnv.getTypeUtils().erasure( type );
+  }
+
+  /**
+   * Find an annotation on an element by it's name
+   * @param e Annotated element
+   * @param annotation Qualified name of the annotation
+   * @return Mirror of the annotation, null if not present
+   */
+  private AnnotationMirror mirror( Element e, String annotation ) {
+    for( AnnotationMirror m : e.getAnnotationMirrors() ) {
+      if( ( ( TypeElement ) m.getAnnotationType().asElement() ).getQualifiedName().contentEquals( annotation ) )
+        return m;
+    }
+    return null;
+  }
+
+  /**
+   * Find all occurrences of a repeatable annotation, whether they're contained or not
+   * @param e Annotated element
+   * @param annotation Qualified name of the annotation
+   * @return Mirrors of the annotation in order
+   */
+  private List< AnnotationMirror > mirrors( Element e, String annotation ) {
+    List< AnnotationMirror > buf = new ArrayList<>();
+
+    AnnotationMirror single = mirror( e, annotation );
+    if( single != null )
+      buf.add( single );
+
+    AnnotationMirror container = mirror( e, INDEXES );
+    if( container != null && annotation.equals( INDEX ) ) {
+      for( AnnotationValue v : list( values( container ).get( "value" ) ) )
+        buf.add( ( AnnotationMirror ) v.getValue() );
+    }
+
+    return buf;
+  }
+
+  /**
+   * Get all values of an annotation by their name, defaults included
+   * @param mirror Annotation to read
+   * @return Values, arrays are lists of annotation values
+   */
+  private Map< String, Object > values( AnnotationMirror mirror ) {
+    Map< String, Object > buf = new HashMap<>();
+    for( Map.Entry< ? extends ExecutableElement, ? extends AnnotationValue > e : processingEnv.getElementUtils().getElementValuesWithDefaults( mirror ).entrySet() )
+      buf.put( e.getKey().getSimpleName().toString(), e.getValue().getValue() );
+    return buf;
+  }
+
+  @SuppressWarnings( "unchecked" )
+  private List< AnnotationValue > list( Object value ) {
+    return value == null ? Collections.emptyList() : ( List< AnnotationValue > ) value;
+  }
+
+  private List< String > strings( Object value ) {
+    List< String > buf = new ArrayList<>();
+    for( AnnotationValue v : list( value ) )
+      buf.add( ( String ) v.getValue() );
+    return buf;
+  }
+
+  private List< Boolean > booleans( Object value ) {
+    List< Boolean > buf = new ArrayList<>();
+    for( AnnotationValue v : list( value ) )
+      buf.add( ( Boolean ) v.getValue() );
+    return buf;
+  }
+
+  private static String literal( String value ) {
+    return "\"" + value.replace( "\\", "\\\\" ).replace( "\"", "\\\"" ) + "\"";
+  }
+
+  private void error( Element e, String message ) {
+    processingEnv.getMessager().printMessage( Diagnostic.Kind.ERROR, message, e );
+  }
+
+  private class Column {
+
+    private final String name, type, length;
+    private final boolean key, nullable, codecs;
+    private final VariableElement field, holder;
+
+    /**
+     * A column as declared on the model
+     * @param name Name of the column
+     * @param type Datatype of the column
+     * @param length Length of the datatype
+     * @param key If this is a unique key
+     * @param nullable If this column is nullable
+     * @param codecs If default codecs may apply
+     * @param field Target field
+     * @param holder Field holding the target's object, null if the target is on the model
+     */
+    Column( String name, String type, String length, boolean key, boolean nullable, boolean codecs, VariableElement field, VariableElement holder ) {
+      this.name = name;
+      this.type = type;
+      this.length = length;
+      this.key = key;
+      this.nullable = nullable;
+      this.codecs = codecs;
+      this.field = field;
+      this.holder = holder;
+    }
+
+    /**
+     * Make the construction of this column's metadata
+     * @return Source of the construction
+     */
+    String construct() {
+      return "new SchemaColumn( " + literal( name ) + ", " + literal( type ) + ", " + literal( length ) + ", " + key + ", " + nullable + ", " +
+        codecs + ", " + literal( field.getSimpleName().toString() ) + ", " + classLiteral( field.asType() ) + " )";
+    }
+  }
+}
@@ -1,27 +1,34 @@
 package at.sps.commands;
 
+import at.sps.core.cache.NameCache;
 import at.sps.core.conf.Messages;
 import at.sps.core.gui.ActionPrompt;
 import at.sps.core.gui.ChatPrompt;
 import at.sps.core.gui.ItemBuilder;
 import at.sps.core.gui.ObjectPager;
+import at.sps.core.gui.PageSource;
 import at.sps.core.orm.mappers.BanMapper;
 import at.sps.core.orm.models.Ban;
 import at.sps.core.shortcmds.ShortCommand;
 import at.sps.core.utils.Utils;
-import org.bukkit.Bukkit;
 import org.bukkit.Material;
-import org.bukkit.OfflinePlayer;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.inventory.meta.ItemMeta;
 
-import java.text.SimpleDateFormat;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 public class BanCmds extends CommandBase {
 
+  // Formatters are immutable, so one instance serves all translations, even off-thread
+  private static final DateTimeFormatter STAMP_FORMAT = DateTimeFormatter.ofPattern( "dd.MM.yyyy HH:mm" ).withZone( ZoneId.systemDefault() );
+
   @ShortCommand( command = "bans", terminalDeny = true )
   private void onBans( Player sender, String[] args ) {
     // No permission
@@ -39,27 +46,43 @@ public class BanCmds extends CommandBase {
     if ( target == null )
       return;
 
-    // Open a new pager on those bans for the executor
-    List< Ban > bans = BanMapper.getInst().listBans( target.getUniqueId() );
-    UUID u = sender.getUniqueId();
-
-    for( int i = 0; i < 20; i++ ) {
-      bans.add( new Ban( u, u, "Permaban 1" ) );
-      Ban b = new Ban( u, u, "Permaban 2" );
-      b.revoke( u, "This is a revoke test" );
-      bans.add( b );
-      bans.add( new Ban( u, u, "Tempban 1", System.currentTimeMillis() + ( 60000 * 60 * 72 ) ) );
-      bans.add( new Ban( u, u, "Tempban 2", System.currentTimeMillis() + ( 60000 * 60 * 30 ) ) );
-      bans.add( new Ban( u, u, "Permaban 3" ) );
-      bans.add( new Ban( u, u, "Tempban 3 - done", System.currentTimeMillis() - 10000 ) );
-    }
-
-    new ObjectPager<>( sender, "§8" + target.getName(), 3, bans )
+    // Open a new pager on those bans for the executor, it loads them page by page
+    new ObjectPager<>( sender, "§8" + target.getName(), 3, banSource( target.getUniqueId() ) )
         .setListener( info -> onBanClick( sender, info ) )
         .setTranslator( this::translateBan )
+        .setAsyncTranslation( true )
         .open();
   }
 
+  /**
+   * Create a source which seeks through the ban history of a player
+   * @param holder Player whose bans to page through
+   * @return Page source of the player's bans
+   */
+  private PageSource< Ban > banSource( UUID holder ) {
+    return new PageSource< Ban >() {
+
+      @Override
+      public CompletableFuture< List< Ban > > fetchPage( int page, Ban after, int limit ) {
+        // Resolve all names shown on the page along with it
+        return BanMapper.getInst().pageBansAsync( holder, after == null ? 0 : after.getID(), limit ).thenCompose( bans -> {
+          List< UUID > players = new ArrayList<>();
+          for( Ban ban : bans ) {
+            players.add( ban.getCreator() );
+            players.add( ban.getRevoker() );
+          }
+
+          return NameCache.getInst().resolveAll( players ).thenApply( names -> bans );
+        } );
+      }
+
+      @Override
+      public CompletableFuture< Integer > count() {
+        return BanMapper.getInst().countBansAsync( holder );
+      }
+    };
+  }
+
   /**
    * Event for when a player clicks on a ban, in the ban-pager
    * @param executor Player who clicked
@@ -106,7 +129,7 @@ public class BanCmds extends CommandBase {
   }
 
   /**
-   * Translate a ban object into an itemstack for the pager
+   * Translate a ban object into an itemstack for the pager, names have been resolved along with the page
    * @param ban Ban to translate
    * @return Translated item stack
    */
@@ -125,18 +148,17 @@ public class BanCmds extends CommandBase {
     }
 
     // Create lore with all information about this ban
-    SimpleDateFormat stampF = new SimpleDateFormat( "dd.MM.yyyy HH:mm" );
-    OfflinePlayer creator = Bukkit.getOfflinePlayer( ban.getCreator() );
-    OfflinePlayer revoker = ban.getRevoker() == null ? null : Bukkit.getOfflinePlayer( ban.getRevoker() );
+    String creator = NameCache.getInst().getName( ban.getCreator(), Messages.UNKNOWN_NAME.getTemplate() );
+    String revoker = ban.getRevoker() == null ? null : NameCache.getInst().getName( ban.getRevoker(), Messages.UNKNOWN_NAME.getTemplate() );
 
     meta.setLore( Messages.BANS_ITEM_LORE.applyPrefixlessML(
       ban.getReason(),
-      creator != null ? creator.getName() : "unbekannt",
-      stampF.format( ban.getCreationDate() ),
-      ban.isPermanent() ? "§cPermanent" : "§dbis " + stampF.format( ban.getExpireDate() ),
+      creator,
+      STAMP_FORMAT.format( Instant.ofEpochMilli( ban.getCreationDate() ) ),
+      ban.isPermanent() ? "§cPermanent" : "§dbis " + STAMP_FORMAT.format( Instant.ofEpochMilli( ban.getExpireDate() ) ),
       ban.isActive() ? "§cja" : "§2nein",
       ban.getIpAddresses().size() > 0 ? String.join( ",", ban.getIpAddresses() ) : "§2keine",
-      ban.getRevoker() == null ? "§cnein" : "§2ja - " + ( revoker != null ? revoker.getName() : "unbeknant" ),
+      revoker == null ? "§cnein" : "§2ja - " + revoker,
       ban.getRevokeReason() == null ? "§ckeiner" : ban.getRevokeReason()
 
     ) );
@@ -1,6 +1,9 @@
 package at.sps.commands;
 
+import at.sps.core.cache.NameCache;
 import at.sps.core.conf.Messages;
+import at.sps.core.utils.ParamCall;
+import at.sps.core.utils.SyncExecutor;
 import org.bukkit.Bukkit;
 import org.bukkit.OfflinePlayer;
 import org.bukkit.command.CommandSender;
@@ -77,23 +80,25 @@ public abstract class CommandBase {
   }
 
   /**
-   * Find a player that exists on the server, not necessarily online
+   * Find a player that exists on the server, not necessarily online. Unknown names need a
+   * profile lookup, which runs in the background, the callback always runs on the main thread
    * @param sender CommandSender for errors
    * @param name Name of the target player
-   * @return OfflinePlayer if found, null otherwise
+   * @param callback Callback of the found player, not called if the player doesn't exist
    */
-  @SuppressWarnings( "deprecation" )
-  protected OfflinePlayer findOfflinePlayer( CommandSender sender, String name ) {
-    OfflinePlayer target = Bukkit.getOfflinePlayer( name );
-
-    // This player does not exist on the server
-    if( target == null ) {
-      sender.sendMessage( Messages.PLAYER_NOT_EXISTING.apply( name ) );
-      return null;
-    }
-
-    // Player exists,
-    return target;
+  protected void findOfflinePlayer( CommandSender sender, String name, ParamCall< OfflinePlayer > callback ) {
+    SyncExecutor.getInst().resume( NameCache.getInst().resolveId( name ), id -> {
+      OfflinePlayer target = id == null ? null : Bukkit.getOfflinePlayer( id );
+
+      // This player does not exist on the server
+      if( target == null ) {
+        sender.sendMessage( Messages.PLAYER_NOT_EXISTING.apply( name ) );
+        return;
+      }
+
+      // Player exists
+      callback.call( target );
+    } );
   }
 
   /**
@@ -1,19 +1,18 @@
 package at.sps.commands;
 
 import at.sps.core.conf.Messages;
-import at.sps.core.orm.ActionResult;
 import at.sps.core.orm.mappers.HomeMapper;
 import at.sps.core.orm.models.Home;
 import at.sps.core.shortcmds.ShortCommand;
 import at.sps.core.gui.ComplexMessage;
 import at.sps.core.gui.ComplexPart;
+import at.sps.core.utils.SyncExecutor;
 import org.bukkit.Location;
 import org.bukkit.entity.Player;
 import org.bukkit.permissions.PermissionAttachmentInfo;
 
 import java.text.SimpleDateFormat;
 import java.util.Date;
-import java.util.List;
 
 public class HomeCmds extends CommandBase {
 
@@ -37,15 +36,20 @@ public class HomeCmds extends CommandBase {
         }
 
         // Fetch home from DB and make sure it exists
-        Home target = HomeMapper.getInst().getByName( sender.getUniqueId(), args[ 0 ] );
-        if( target == null ) {
-            sender.sendMessage( Messages.HOME_NON_EXISTENT.apply( args[ 0 ] ) );
-            return;
-        }
+        SyncExecutor.getInst().resume( HomeMapper.getInst().getByNameAsync( sender.getUniqueId(), args[ 0 ] ), target -> {
+            if( target == null ) {
+                sender.sendMessage( Messages.HOME_NON_EXISTENT.apply( args[ 0 ] ) );
+                return;
+            }
 
-        // Teleport to home, notify
-        sender.teleport( target.getLocation() );
-        sender.sendMessage( Messages.HOME_TELEPORT.apply( target.getName() ) );
+            // Player left while the home was loading
+            if( !sender.isOnline() )
+                return;
+
+            // Teleport to home, notify
+            sender.teleport( target.getLocation() );
+            sender.sendMessage( Messages.HOME_TELEPORT.apply( target.getName() ) );
+        } );
     }
 
     /**
@@ -61,35 +65,34 @@ public class HomeCmds extends CommandBase {
             return;
         }
 
+        // Permissions and location have to be read on the main thread
         int allowed = getMaxAllowed( sender );
-        int has = HomeMapper.getInst().getHomeCount( sender.getUniqueId() );
-
-        // Has reached his home limit
-        if( has + 1 > allowed ) {
-            sender.sendMessage( Messages.HOME_LIMIT.apply( allowed ) );
-            return;
-        }
-
-        // Create and add home
         Home added = new Home( sender.getUniqueId(), args[ 0 ], sender.getLocation(), System.currentTimeMillis() );
-        ActionResult result = HomeMapper.getInst().addHome( added );
-
-        switch ( result ) {
-            // Home added
-            case OK:
-                sender.sendMessage( Messages.HOME_CREATED.apply( added.getName() ) );
-                break;
-
-            // Name is already existent
-            case ALREADY_EXISTENT:
-                sender.sendMessage( Messages.HOME_EXISTING.apply( added.getName() ) );
-                break;
-
-            // Error
-            default:
-                sender.sendMessage( Messages.INTERNAL_ERR.apply( "HOMECR->" + result ) );
-                break;
-        }
+
+        // Counting and adding happen within the same task, so quick repeated commands can't pass the limit
+        SyncExecutor.getInst().resume( HomeMapper.getInst().addHomeAsync( added, allowed ), result -> {
+            switch ( result ) {
+                // Home added
+                case OK:
+                    sender.sendMessage( Messages.HOME_CREATED.apply( added.getName() ) );
+                    break;
+
+                // Name is already existent
+                case ALREADY_EXISTENT:
+                    sender.sendMessage( Messages.HOME_EXISTING.apply( added.getName() ) );
+                    break;
+
+                // Has reached his home limit
+                case LIMIT_REACHED:
+                    sender.sendMessage( Messages.HOME_LIMIT.apply( allowed ) );
+                    break;
+
+                // Error
+                default:
+                    sender.sendMessage( Messages.INTERNAL_ERR.apply( "HOMECR->" + result ) );
+                    break;
+            }
+        } );
     }
 
     /**
@@ -138,24 +141,24 @@ public class HomeCmds extends CommandBase {
         }
 
         // Try to delete the existing home from the database
-        ActionResult result = HomeMapper.getInst().removeHome( sender.getUniqueId(), args[ 0 ] );
-
-        switch ( result ) {
-            // Home deleted
-            case OK:
-                sender.sendMessage( Messages.HOME_DELETED.apply( args[ 0 ] ) );
-                break;
-
-            // Name is not existent
-            case NON_EXISTENT:
-                sender.sendMessage( Messages.HOME_NON_EXISTENT.apply( args[ 0 ] ) );
-                break;
-
-            // Error
-            default:
-                sender.sendMessage( Messages.INTERNAL_ERR.apply( "HOMEDL->" + result ) );
-                break;
-        }
+        SyncExecutor.getInst().resume( HomeMapper.getInst().removeHomeAsync( sender.getUniqueId(), args[ 0 ] ), result -> {
+            switch ( result ) {
+                // Home deleted
+                case OK:
+                    sender.sendMessage( Messages.HOME_DELETED.apply( args[ 0 ] ) );
+                    break;
+
+                // Name is not existent
+                case NON_EXISTENT:
+                    sender.sendMessage( Messages.HOME_NON_EXISTENT.apply( args[ 0 ] ) );
+                    break;
+
+                // Error
+                default:
+                    sender.sendMessage( Messages.INTERNAL_ERR.apply( "HOMEDL->" + result ) );
+                    break;
+            }
+        } );
     }
 
     /**
@@ -166,36 +169,37 @@ public class HomeCmds extends CommandBase {
     @ShortCommand( command = "homes", terminalDeny = true )
     private void onHomes( Player sender, String[] args ) {
         // Fetch all existing homes from the database
-        List< Home > homes = HomeMapper.getInst().listHomes( sender.getUniqueId() );
-
-        // No homes found
-        if( homes.size() == 0 ) {
-            sender.sendMessage( Messages.HOMES_LIST.apply() + Messages.HOMES_NONE.getTemplate() );
-            return;
-        }
-
-        // Build complex message
-        ComplexMessage msg = new ComplexMessage( new ComplexPart( Messages.HOMES_LIST.apply(), "", "", true ) );
-
-        // Build home list
-        for( int i = 0; i < homes.size(); i++ ) {
-            // Append delimiter on everything but the first element
-            if( i != 0 )
-                msg.append( new ComplexPart( Messages.HOME_DELIMITER.getTemplate(), "", "", true ) );
-
-            // Build hover string from home data
-            Home currHome = homes.get( i );
-            String date = homeDateFormat.format( new Date( currHome.getCreationDate() ) );
-            Location loc = currHome.getLocation();
-            String locCords = "(" + loc.getWorld().getName() + ", " + loc.getBlockX() + ", " + loc.getBlockY() + ", " + loc.getBlockZ() + ")";
-            String hover = Messages.HOMES_LIST_HOVER.applyPrefixless( date, locCords );
-
-            // Append part
-            String text = Messages.HOME_COLOR.getTemplate() + currHome.getName();
-            msg.append( new ComplexPart( text, hover, "/home " + currHome.getName(), true ) );
-        }
-
-        // Send list of available homes to the player
-        msg.send( sender );
+        SyncExecutor.getInst().resume( HomeMapper.getInst().listHomesAsync( sender.getUniqueId() ), homes -> {
+
+            // No homes found
+            if( homes.size() == 0 ) {
+                sender.sendMessage( Messages.HOMES_LIST.apply() + Messages.HOMES_NONE.getTemplate() );
+                return;
+            }
+
+            // Build complex message
+            ComplexMessage msg = new ComplexMessage( new ComplexPart( Messages.HOMES_LIST.apply(), "", "", true ) );
+
+            // Build home list
+            for( int i = 0; i < homes.size(); i++ ) {
+                // Append delimiter on everything but the first element
+                if( i != 0 )
+                    msg.append( new ComplexPart( Messages.HOME_DELIMITER.getTemplate(), "", "", true ) );
+
+                // Build hover string from home data
+                Home currHome = homes.get( i );
+                String date = homeDateFormat.format( new Date( currHome.getCreationDate() ) );
+                Location loc = currHome.getLocation();
+                String locCords = "(" + loc.getWorld().getName() + ", " + loc.getBlockX() + ", " + loc.getBlockY() + ", " + loc.getBlockZ() + ")";
+                String hover = Messages.HOMES_LIST_HOVER.applyPrefixless( date, locCords );
+
+                // Append part
+                String text = Messages.HOME_COLOR.getTemplate() + currHome.getName();
+                msg.append( new ComplexPart( text, hover, "/home " + currHome.getName(), true ) );
+            }
+
+            // Send list of available homes to the player
+            msg.send( sender );
+        } );
     }
 }
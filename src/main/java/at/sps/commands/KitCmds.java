@@ -7,7 +7,6 @@ import at.sps.core.orm.ActionResult;
 import at.sps.core.orm.mappers.KitCooldownMapper;
 import at.sps.core.orm.mappers.KitMapper;
 import at.sps.core.orm.models.Kit;
-import at.sps.core.orm.models.KitCooldown;
 import at.sps.core.shortcmds.ShortCommand;
 import at.sps.core.utils.*;
 import org.bukkit.Material;
@@ -18,6 +17,7 @@ import org.bukkit.inventory.ItemStack;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 public class KitCmds {
 
@@ -34,37 +34,60 @@ public class KitCmds {
       return;
     }
 
-    Kit target = KitMapper.getInst().getByName( args[ 0 ] );
+    // Claim off the main thread, hand out items afterwards
+    UUID holder = sender.getUniqueId();
+    CompletableFuture< Pair< Kit, Long > > claim = KitMapper.getInst().async( () -> claimKit( holder, args[ 0 ] ) );
 
-    // Kit non existent
-    if( target == null ) {
-      sender.sendMessage( Messages.KIT_NON_EXISTENT.apply( args[ 0 ] ) );
-      return;
-    }
+    SyncExecutor.getInst().resume( claim, res -> {
+      Kit target = res.getKey();
 
-    // Get the kit's cooldown information for the player
-    UUID holder = sender.getUniqueId();
-    KitCooldown cooldown = KitCooldownMapper.getInst().getForPlayer( holder, target );
+      // Kit non existent
+      if( target == null ) {
+        sender.sendMessage( Messages.KIT_NON_EXISTENT.apply( args[ 0 ] ) );
+        return;
+      }
 
-    // No cooldown existent, just write curr time to DB and hand out the kit
-    if( cooldown == null || cooldown.getRemainder() == null ) {
-      KitCooldownMapper.getInst().saveCooldown( new KitCooldown( holder, target.getID(), System.currentTimeMillis() ) );
-    }
+      // The cooldown could not be checked
+      if( res.getValue() == null ) {
+        sender.sendMessage( Messages.INTERNAL_ERR.apply( "KITCL->" + ActionResult.INTERNAL_ERROR ) );
+        return;
+      }
 
-    // Cooldown exists, check if the player is allowed to get the kit yet
-    else {
       // There is still time remaining, break here
-      if( cooldown.getRemainder() > 0 ) {
-        String timeString = Utils.formatRemainder( cooldown.getRemainder() );
+      if( res.getValue() > 0 ) {
+        String timeString = Utils.formatRemainder( res.getValue() );
         sender.sendMessage( Messages.KIT_COOLDOWN.apply( timeString, target.getTitle() ) );
         return;
       }
 
-      // Since the kit will now be given, re-set the new timestamp
-      cooldown.setLastUse( System.currentTimeMillis() );
-      KitCooldownMapper.getInst().saveCooldown( cooldown );
-    }
+      giveKit( sender, target );
+    } );
+  }
 
+  /**
+   * Claim a kit for a player if it's cooldown allows it, runs off the main thread
+   * @param holder UUID of the claiming player
+   * @param name Name of the kit
+   * @return Pair of the kit (null if non existent) and the remaining cooldown, 0 when claimed, null on errors
+   */
+  private Pair< Kit, Long > claimKit( UUID holder, String name ) {
+    Kit target = KitMapper.getInst().getByName( name );
+
+    // Kit non existent
+    if( target == null )
+      return new Pair<>( null, 0L );
+
+    // Checks and sets the cooldown in one statement, a concurrent claim can't slip in between
+    Long remainder = KitCooldownMapper.getInst().tryClaim( holder, target.getID(), target.getCooldown(), System.currentTimeMillis() );
+    return new Pair<>( target, remainder );
+  }
+
+  /**
+   * Hand out the contents of a kit, items that don't fit get dropped
+   * @param sender Receiving player
+   * @param target Kit to hand out
+   */
+  private void giveKit( Player sender, Kit target ) {
     // Loop contents
     List< ItemStack > contents = target.getContents();
     int dropped = 0;
@@ -110,13 +133,6 @@ public class KitCmds {
       return;
     }
 
-    // Check if name is available
-    Kit kExisting = KitMapper.getInst().getByName( args[ 0 ] );
-    if( kExisting != null ) {
-      sender.sendMessage( Messages.KIT_EXISTING.apply( kExisting.getTitle() ) );
-      return;
-    }
-
     // Check that kit contents are available
     List< ItemStack > contents = getCreationContents( sender.getInventory() );
     if( contents.size() == 0 ) {
@@ -136,26 +152,32 @@ public class KitCmds {
     for( int i = 3; i < args.length; i++ )
       desc.append( " " ).append( args[ i ] );
 
-    // Add to database
+    // Check if name is available, then add to database
     Kit kAdd = new Kit( args[ 0 ], desc.toString(), cooldown * 1000L, contents );
-    ActionResult result = KitMapper.getInst().addKit( kAdd );
-    switch ( result ) {
-
-      // Kit added
-      case OK:
-        sender.sendMessage( Messages.KIT_CREATED.apply( kAdd.getTitle(), kAdd.getStackCount() ) );
-        break;
-
-      // Name is already existent
-      case ALREADY_EXISTENT:
-        sender.sendMessage( Messages.KIT_EXISTING.apply( kAdd.getTitle() ) );
-        break;
-
-      // Error
-      default:
-        sender.sendMessage( Messages.INTERNAL_ERR.apply( "KITCR->" + result ) );
-        break;
-    }
+    KitMapper mapper = KitMapper.getInst();
+    CompletableFuture< ActionResult > adding = mapper.getByNameAsync( args[ 0 ] ).thenCompose( kExisting ->
+      kExisting != null ? CompletableFuture.completedFuture( ActionResult.ALREADY_EXISTENT ) : mapper.addKitAsync( kAdd )
+    );
+
+    SyncExecutor.getInst().resume( adding, result -> {
+      switch ( result ) {
+
+        // Kit added
+        case OK:
+          sender.sendMessage( Messages.KIT_CREATED.apply( kAdd.getTitle(), kAdd.getStackCount() ) );
+          break;
+
+        // Name is already existent
+        case ALREADY_EXISTENT:
+          sender.sendMessage( Messages.KIT_EXISTING.apply( kAdd.getTitle() ) );
+          break;
+
+        // Error
+        default:
+          sender.sendMessage( Messages.INTERNAL_ERR.apply( "KITCR->" + result ) );
+          break;
+      }
+    } );
   }
 
   /**
@@ -172,23 +194,24 @@ public class KitCmds {
       return;
     }
 
-    ActionResult result = KitMapper.getInst().removeKit( args[ 0 ] );
-    switch ( result ) {
-      // Kit deleted
-      case OK:
-        sender.sendMessage( Messages.KIT_DELETED.apply( args[ 0 ] ) );
-        break;
-
-      // Name is not existent
-      case NON_EXISTENT:
-        sender.sendMessage( Messages.KIT_NON_EXISTENT.apply( args[ 0 ] ) );
-        break;
-
-      // Error
-      default:
-        sender.sendMessage( Messages.INTERNAL_ERR.apply( "KITDL->" + result ) );
-        break;
-    }
+    SyncExecutor.getInst().resume( KitMapper.getInst().removeKitAsync( args[ 0 ] ), result -> {
+      switch ( result ) {
+        // Kit deleted
+        case OK:
+          sender.sendMessage( Messages.KIT_DELETED.apply( args[ 0 ] ) );
+          break;
+
+        // Name is not existent
+        case NON_EXISTENT:
+          sender.sendMessage( Messages.KIT_NON_EXISTENT.apply( args[ 0 ] ) );
+          break;
+
+        // Error
+        default:
+          sender.sendMessage( Messages.INTERNAL_ERR.apply( "KITDL->" + result ) );
+          break;
+      }
+    } );
   }
 
   /**
@@ -205,13 +228,6 @@ public class KitCmds {
       return;
     }
 
-    // Check that kit is existing
-    Kit target = KitMapper.getInst().getByName( args[ 0 ] );
-    if( target == null ) {
-      sender.sendMessage( Messages.KIT_NON_EXISTENT.apply( args[ 0 ] ) );
-      return;
-    }
-
     // Check that kit contents are available
     List< ItemStack > contents = getCreationContents( sender.getInventory() );
     if( contents.size() == 0 ) {
@@ -219,31 +235,40 @@ public class KitCmds {
       return;
     }
 
-    // Update kit contents and write
-    target.setContents( contents );
-    ActionResult res = KitMapper.getInst().updateKit( target );
-    switch ( res ) {
-      // Kit deleted
-      case OK:
-        sender.sendMessage( Messages.KIT_UPDATED.apply( args[ 0 ] ) );
-        break;
-
-      // Name is not existent
-      case NON_EXISTENT:
-        sender.sendMessage( Messages.KIT_NON_EXISTENT.apply( args[ 0 ] ) );
-        break;
-
-      // Error
-      default:
-        sender.sendMessage( Messages.INTERNAL_ERR.apply( "KITCH->" + res ) );
-        break;
-    }
+    // Check that kit is existing, update kit contents and write
+    KitMapper mapper = KitMapper.getInst();
+    CompletableFuture< ActionResult > updating = mapper.getByNameAsync( args[ 0 ] ).thenCompose( target -> {
+      if( target == null )
+        return CompletableFuture.completedFuture( ActionResult.NON_EXISTENT );
+
+      target.setContents( contents );
+      return mapper.updateKitAsync( target );
+    } );
+
+    SyncExecutor.getInst().resume( updating, res -> {
+      switch ( res ) {
+        // Kit deleted
+        case OK:
+          sender.sendMessage( Messages.KIT_UPDATED.apply( args[ 0 ] ) );
+          break;
+
+        // Name is not existent
+        case NON_EXISTENT:
+          sender.sendMessage( Messages.KIT_NON_EXISTENT.apply( args[ 0 ] ) );
+          break;
+
+        // Error
+        default:
+          sender.sendMessage( Messages.INTERNAL_ERR.apply( "KITCH->" + res ) );
+          break;
+      }
+    } );
   }
 
   /**
    * Command: kits
    * Usage: /kits
-   * Used to list all available kits
+   * Used to list all kits, highlighting the ones available to the player
    */
   @ShortCommand( command = "kits", terminalDeny = true )
   private void onKits( Player sender, String[] args ) {
@@ -253,39 +278,43 @@ public class KitCmds {
     for( int i = 0; i < args.length; i++ )
       search.append( i > 0 ? " " : "" ).append( args[ i ] );
 
-    // List all kits without actual contents for efficiency
-    List< Kit > kits = KitMapper.getInst().listKits( search.toString(), false );
-
-    // No kits created
-    if( kits.size() == 0 ) {
-      sender.sendMessage( Messages.KIT_LIST.apply() + Messages.KIT_NONE.getTemplate() );
-      return;
-    }
-
-    // Create complex message builder, first part is list prefix
-    ComplexMessage msg = new ComplexMessage( new ComplexPart( Messages.KIT_LIST.apply(), "", "", true ) );
-
-    // Build list of kits
-    for( int i = 0; i < kits.size(); i++ ) {
-      // Append delimiter on everything but the first element
-      if( i != 0 )
-        msg.append( new ComplexPart( Messages.KIT_DELIMITER.getTemplate(), "", "", true ) );
-
-      // Get current kit for properties and build hover message
-      Kit currKit = kits.get( i );
-      String hover = Messages.KIT_LIST_HOVER.applyPrefixless( currKit.getStackCount(), currKit.getDescription() );
+    // List all kits without actual contents, along with the player's cooldowns
+    SyncExecutor.getInst().resume( KitMapper.getInst().listWithCooldownsAsync( sender.getUniqueId(), search.toString() ), kits -> {
+      // No kits created
+      if( kits.size() == 0 ) {
+        sender.sendMessage( Messages.KIT_LIST.apply() + Messages.KIT_NONE.getTemplate() );
+        return;
+      }
 
-      // Build current entry
-      String text = Messages.KIT_COLOR.getTemplate() + currKit.getTitle();
-      msg.append( new ComplexPart( text, hover, "/kit " + currKit.getTitle(), true ) );
-    }
+      // Create complex message builder, first part is list prefix
+      ComplexMessage msg = new ComplexMessage( new ComplexPart( Messages.KIT_LIST.apply(), "", "", true ) );
+
+      // Build list of kits
+      for( int i = 0; i < kits.size(); i++ ) {
+        // Append delimiter on everything but the first element
+        if( i != 0 )
+          msg.append( new ComplexPart( Messages.KIT_DELIMITER.getTemplate(), "", "", true ) );
+
+        // Get current kit for properties and build hover message, kits on cooldown show the remaining time
+        Kit currKit = kits.get( i ).getKey();
+        long remainder = kits.get( i ).getValue();
+        String hover = remainder > 0 ?
+          Messages.KIT_LIST_HOVER_COOLDOWN.applyPrefixless( currKit.getStackCount(), currKit.getDescription(), Utils.formatRemainder( remainder ) ) :
+          Messages.KIT_LIST_HOVER.applyPrefixless( currKit.getStackCount(), currKit.getDescription() );
+
+        // Build current entry
+        String text = ( remainder > 0 ? Messages.KIT_COLOR_COOLDOWN : Messages.KIT_COLOR ).getTemplate() + currKit.getTitle();
+        msg.append( new ComplexPart( text, hover, "/kit " + currKit.getTitle(), true ) );
+      }
 
-    // Send message to the executor
-    msg.send( sender );
+      // Send message to the executor
+      msg.send( sender );
+    } );
   }
 
   /**
-   * Get a list of itemstacks which will be the kit's contents, ignore null or air
+   * Get a list of itemstacks which will be the kit's contents, ignore null or air, items
+   * are copied since they get serialized off the main thread
    * @param inv Inventory to pull items from
    * @return List of items
    */
@@ -298,7 +327,7 @@ public class KitCmds {
       if( item == null || item.getType() == Material.AIR )
         continue;
 
-      contents.add( item );
+      contents.add( item.clone() );
     }
 
     return contents;
@@ -1,5 +1,6 @@
 package at.sps.commands;
 
+import at.sps.core.cache.NameCache;
 import at.sps.core.conf.Messages;
 import at.sps.core.orm.ActionResult;
 import at.sps.core.orm.mappers.WarpMapper;
@@ -7,12 +8,13 @@ import at.sps.core.orm.models.Warp;
 import at.sps.core.shortcmds.ShortCommand;
 import at.sps.core.gui.ComplexMessage;
 import at.sps.core.gui.ComplexPart;
+import at.sps.core.utils.SyncExecutor;
 import org.bukkit.Location;
 import org.bukkit.entity.Player;
 
 import java.text.SimpleDateFormat;
 import java.util.Date;
-import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 public class WarpCmds {
 
@@ -36,17 +38,21 @@ public class WarpCmds {
     }
 
     // Fetch home from DB
-    Warp target = WarpMapper.getInst().getByName( args[ 0 ] );
+    SyncExecutor.getInst().resume( WarpMapper.getInst().getByNameAsync( args[ 0 ] ), target -> {
+      // Home non existent
+      if( target == null ) {
+        sender.sendMessage( Messages.WARP_NON_EXISTING.apply( args[ 0 ] ) );
+        return;
+      }
 
-    // Home non existent
-    if( target == null ) {
-      sender.sendMessage( Messages.WARP_NON_EXISTING.apply( args[ 0 ] ) );
-      return;
-    }
+      // Player left while the warp was loading
+      if( !sender.isOnline() )
+        return;
 
-    // Teleport to his home
-    sender.teleport( target.getLocation() );
-    sender.sendMessage( Messages.WARP_TELEPORT.apply( target.getName() ) );
+      // Teleport to his home
+      sender.teleport( target.getLocation() );
+      sender.sendMessage( Messages.WARP_TELEPORT.apply( target.getName() ) );
+    } );
   }
 
   /**
@@ -63,24 +69,24 @@ public class WarpCmds {
     }
 
     Warp added = new Warp( args[ 0 ], sender.getLocation(), System.currentTimeMillis(), sender.getUniqueId() );
-    ActionResult result = WarpMapper.getInst().addWarp( added );
-
-    switch ( result ) {
-      // Warp added
-      case OK:
-        sender.sendMessage( Messages.WARP_CREATED.apply( added.getName() ) );
-        break;
-
-      // Name is already existent
-      case ALREADY_EXISTENT:
-        sender.sendMessage( Messages.WARP_EXISTING.apply( added.getName() ) );
-        break;
-
-      // Error
-      default:
-        sender.sendMessage( Messages.INTERNAL_ERR.apply( "WARPCR->" + result ) );
-        break;
-    }
+    SyncExecutor.getInst().resume( WarpMapper.getInst().addWarpAsync( added ), result -> {
+      switch ( result ) {
+        // Warp added
+        case OK:
+          sender.sendMessage( Messages.WARP_CREATED.apply( added.getName() ) );
+          break;
+
+        // Name is already existent
+        case ALREADY_EXISTENT:
+          sender.sendMessage( Messages.WARP_EXISTING.apply( added.getName() ) );
+          break;
+
+        // Error
+        default:
+          sender.sendMessage( Messages.INTERNAL_ERR.apply( "WARPCR->" + result ) );
+          break;
+      }
+    } );
   }
 
   /**
@@ -97,24 +103,24 @@ public class WarpCmds {
     }
 
     // Try to delete the existing home from the database
-    ActionResult result = WarpMapper.getInst().removeWarp( args[ 0 ] );
-
-    switch ( result ) {
-      // Warp deleted
-      case OK:
-        sender.sendMessage( Messages.WARP_DELETED.apply( args[ 0 ] ) );
-        break;
-
-      // Name is not existent
-      case NON_EXISTENT:
-        sender.sendMessage( Messages.WARP_NON_EXISTING.apply( args[ 0 ] ) );
-        break;
-
-      // Error
-      default:
-        sender.sendMessage( Messages.INTERNAL_ERR.apply( "WARPDL->" + result ) );
-        break;
-    }
+    SyncExecutor.getInst().resume( WarpMapper.getInst().removeWarpAsync( args[ 0 ] ), result -> {
+      switch ( result ) {
+        // Warp deleted
+        case OK:
+          sender.sendMessage( Messages.WARP_DELETED.apply( args[ 0 ] ) );
+          break;
+
+        // Name is not existent
+        case NON_EXISTENT:
+          sender.sendMessage( Messages.WARP_NON_EXISTING.apply( args[ 0 ] ) );
+          break;
+
+        // Error
+        default:
+          sender.sendMessage( Messages.INTERNAL_ERR.apply( "WARPDL->" + result ) );
+          break;
+      }
+    } );
   }
 
   /**
@@ -130,35 +136,38 @@ public class WarpCmds {
       return;
     }
 
-    // Try to fetch the existing warp
-    Warp target = WarpMapper.getInst().getByName( args[ 0 ] );
-
-    // Warp non existent
-    if( target == null ) {
-      sender.sendMessage( Messages.WARP_NON_EXISTING.apply( args[ 0 ] ) );
-      return;
-    }
-
-    // Set the new player location and update in DB
-    target.setLocation( sender.getLocation() );
-    ActionResult result = WarpMapper.getInst().updateWarp( target );
-
-    switch ( result ) {
-      // Warp updated
-      case OK:
-        sender.sendMessage( Messages.WARP_UPDATED.apply( args[ 0 ] ) );
-        break;
-
-      // Name is not existent
-      case NON_EXISTENT:
-        sender.sendMessage( Messages.WARP_NON_EXISTING.apply( args[ 0 ] ) );
-        break;
-
-      // Error
-      default:
-        sender.sendMessage( Messages.INTERNAL_ERR.apply( "WARPUPD->" + result ) );
-        break;
-    }
+    // Try to fetch the existing warp, set the new player location and update in DB
+    Location loc = sender.getLocation();
+    WarpMapper mapper = WarpMapper.getInst();
+    CompletableFuture< ActionResult > updating = mapper.getByNameAsync( args[ 0 ] ).thenCompose( target -> {
+      // Warp non existent
+      if( target == null )
+        return CompletableFuture.completedFuture( ActionResult.NON_EXISTENT );
+
+      // Update a copy, the registry's instance only gets replaced once written
+      Warp updated = mapper.copyOf( target );
+      updated.setLocation( loc );
+      return mapper.updateWarpAsync( updated );
+    } );
+
+    SyncExecutor.getInst().resume( updating, result -> {
+      switch ( result ) {
+        // Warp updated
+        case OK:
+          sender.sendMessage( Messages.WARP_UPDATED.apply( args[ 0 ] ) );
+          break;
+
+        // Name is not existent
+        case NON_EXISTENT:
+          sender.sendMessage( Messages.WARP_NON_EXISTING.apply( args[ 0 ] ) );
+          break;
+
+        // Error
+        default:
+          sender.sendMessage( Messages.INTERNAL_ERR.apply( "WARPUPD->" + result ) );
+          break;
+      }
+    } );
   }
 
   /**
@@ -171,34 +180,35 @@ public class WarpCmds {
 
     // Fetch all existing warps from the database
     String searchterm = args.length == 0 ? "" : args[ 0 ];
-    List< Warp > warps = WarpMapper.getInst().listWarps( searchterm );
-
-    // No warps found
-    if( warps.size() == 0 ) {
-      sender.sendMessage( Messages.WARP_LIST.apply() + Messages.WARP_NONE.getTemplate() );
-      return;
-    }
-
-    // Build message
-    ComplexMessage msg = new ComplexMessage( new ComplexPart( Messages.WARP_LIST.apply(), "", "", true ) );
-
-    // Build home list
-    for( int i = 0; i < warps.size(); i++ ) {
-      // Append delimiter on everything but the first element
-      if( i != 0 )
-        msg.append( new ComplexPart( Messages.WARP_DELIMITER.getTemplate(), "", "", true ) );
-
-      Warp warp = warps.get( i );
-      Location loc = warp.getLocation();
-      String locCords = "(" + loc.getWorld().getName() + ", " + loc.getBlockX() + ", " + loc.getBlockY() + ", " + loc.getBlockZ() + ")";
-      String date = warpDateFormat.format( new Date( warp.getCreationDate() ) );
-      String hover = Messages.WARP_LIST_HOVER.applyPrefixless( date, locCords );
-
-      // Append current warp entry
-      msg.append( new ComplexPart( Messages.WARP_COLOR.getTemplate() + warp.getName(), hover, "/warp " + warp.getName(), true ) );
-    }
-
-    // Send list of available homes to the player
-    msg.send( sender );
+    SyncExecutor.getInst().resume( WarpMapper.getInst().listWarpsAsync( searchterm ), warps -> {
+      // No warps found
+      if( warps.size() == 0 ) {
+        sender.sendMessage( Messages.WARP_LIST.apply() + Messages.WARP_NONE.getTemplate() );
+        return;
+      }
+
+      // Build message
+      ComplexMessage msg = new ComplexMessage( new ComplexPart( Messages.WARP_LIST.apply(), "", "", true ) );
+
+      // Build home list
+      for( int i = 0; i < warps.size(); i++ ) {
+        // Append delimiter on everything but the first element
+        if( i != 0 )
+          msg.append( new ComplexPart( Messages.WARP_DELIMITER.getTemplate(), "", "", true ) );
+
+        Warp warp = warps.get( i );
+        Location loc = warp.getLocation();
+        String locCords = "(" + loc.getWorld().getName() + ", " + loc.getBlockX() + ", " + loc.getBlockY() + ", " + loc.getBlockZ() + ")";
+        String date = warpDateFormat.format( new Date( warp.getCreationDate() ) );
+        String creator = NameCache.getInst().getName( warp.getCreator(), Messages.UNKNOWN_NAME.getTemplate() );
+        String hover = Messages.WARP_LIST_HOVER.applyPrefixless( date, locCords, creator );
+
+        // Append current warp entry
+        msg.append( new ComplexPart( Messages.WARP_COLOR.getTemplate() + warp.getName(), hover, "/warp " + warp.getName(), true ) );
+      }
+
+      // Send list of available homes to the player
+      msg.send( sender );
+    } );
   }
 }
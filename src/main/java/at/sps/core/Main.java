@@ -1,7 +1,13 @@
 package at.sps.core;
 
 import at.sps.commands.*;
+import at.sps.core.cache.BanIndex;
+import at.sps.core.cache.HomeCache;
+import at.sps.core.cache.KitCatalog;
+import at.sps.core.cache.NameCache;
+import at.sps.core.cache.WarpRegistry;
 import at.sps.core.conf.SPSConfig;
+import at.sps.core.conf.Settings;
 import at.sps.core.gui.ChatPrompt;
 import at.sps.core.gui.InventoryGUI;
 import at.sps.core.orm.MariaDB;
@@ -40,9 +46,14 @@ public class Main extends JavaPlugin {
   // On plugin unload
   @Override
   public void onDisable() {
-    // Disconnect DB if existent
-    if( db != null )
+    // Keep resolved names for the next start
+    NameCache.getInst().save();
+
+    // Flush buffered writes, then disconnect DB if existent
+    if( db != null ) {
+      db.flushWriteBehind();
       db.disconnect();
+    }
 
     // Destroy all existing and still active inventory guis and chat prompts
     InventoryGUI.destroyAll();
@@ -75,8 +86,14 @@ public class Main extends JavaPlugin {
    * Set up all needed resources for external classes
    */
   private void setupResources() {
+    // Create and load config file first, it holds the database settings
+    new SPSConfig( new File( getDataFolder(), "config.yml" ) );
+
     // Connect to database
-    db = new MariaDB( "root", "aidoh8Aitah5e", "sps" );
+    db = new MariaDB(
+      Settings.DB_HOST.asString(), Settings.DB_PORT.asInt(),
+      Settings.DB_USERNAME.asString(), Settings.DB_PASSWORD.asString(), Settings.DB_NAME.asString()
+    );
     db.connect();
 
     // Create all needed tables for the model mappers
@@ -88,7 +105,15 @@ public class Main extends JavaPlugin {
       BanMapper.getInst()
     );
 
-    // Create and load config file, this is not used anywhere else ATM
-    new SPSConfig( new File( getDataFolder(), "config.yml" ) );
+    // Known names first, the caches below resolve the names they'll show
+    NameCache.getInst().load();
+
+    // Keep the homes of online players, all warps and all kits in memory
+    HomeCache.getInst();
+    WarpRegistry.getInst().load();
+    KitCatalog.getInst().load();
+
+    // Check logins against all active bans in memory
+    BanIndex.getInst().load();
   }
 }
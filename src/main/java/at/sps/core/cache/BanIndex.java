@@ -0,0 +1,216 @@
+package at.sps.core.cache;
+
+import at.sps.core.Main;
+import at.sps.core.conf.Messages;
+import at.sps.core.orm.codecs.AddressListCodec;
+import at.sps.core.orm.mappers.BanMapper;
+import at.sps.core.orm.models.Ban;
+import at.sps.core.utils.LogLevel;
+import at.sps.core.utils.SLogging;
+import lombok.Getter;
+import org.bukkit.Bukkit;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
+
+import java.text.SimpleDateFormat;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+public class BanIndex implements Listener {
+
+  // Expired temporary bans get dropped once a minute, a failed load gets retried just as often
+  private static final long PURGE_INTERVAL_TICKS = 20L * 60;
+
+  private static BanIndex inst;
+
+  // Active bans by their holder and by every banned address
+  private final Map< UUID, List< Ban > > byHolder;
+  private final Map< String, List< Ban > > byAddress;
+
+  @Getter
+  private volatile boolean loaded;
+
+  /**
+   * The ban index keeps all active bans in memory, so logins can be checked
+   * without asking the database. Revoked and expired bans leave the index
+   */
+  private BanIndex() {
+    inst = this;
+    this.byHolder = new ConcurrentHashMap<>();
+    this.byAddress = new ConcurrentHashMap<>();
+
+    Bukkit.getPluginManager().registerEvents( this, Main.getInst() );
+    Bukkit.getScheduler().runTaskTimerAsynchronously( Main.getInst(), this::purge, PURGE_INTERVAL_TICKS, PURGE_INTERVAL_TICKS );
+  }
+
+  /**
+   * Load all active bans from the database, replacing the current contents. If loading fails,
+   * the index stays unloaded and logins are checked against the database instead
+   */
+  public synchronized void load() {
+    List< Ban > active = BanMapper.getInst().listActiveBans();
+    if( active == null ) {
+      loaded = false;
+      SLogging.getInst().log( "Could not load the ban index, checking logins against the database!", LogLevel.WARNING );
+      return;
+    }
+
+    byHolder.clear();
+    byAddress.clear();
+
+    List< UUID > creators = new ArrayList<>();
+    for( Ban ban : active ) {
+      put( ban );
+      creators.add( ban.getCreator() );
+    }
+
+    loaded = true;
+
+    // Creators are shown in the ban details
+    NameCache.getInst().resolveAll( creators );
+  }
+
+  /**
+   * Find an active ban for a player or one of it's addresses
+   * @param holder UUID of the player
+   * @param address Address the player connects from, may be null
+   * @return Active ban if one exists, null otherwise
+   */
+  public Ban find( UUID holder, String address ) {
+    Ban ban = findActive( byHolder.get( holder ) );
+    String canonical = address == null ? null : AddressListCodec.canonical( address );
+    if( ban != null || canonical == null )
+      return ban;
+
+    return findActive( byAddress.get( canonical ) );
+  }
+
+  /**
+   * Keep a written ban in sync, active ones get indexed and inactive ones dropped
+   * @param ban Ban that has been written
+   */
+  public synchronized void put( Ban ban ) {
+    remove( ban );
+
+    if( !ban.isActive() )
+      return;
+
+    byHolder.computeIfAbsent( ban.getHolder(), k -> new CopyOnWriteArrayList<>() ).add( ban );
+    // Keyed just like stored lists decode, so lookups match regardless of the notation
+    for( String address : ban.getIpAddresses() ) {
+      String canonical = AddressListCodec.canonical( address );
+      if( canonical != null )
+        byAddress.computeIfAbsent( canonical, k -> new CopyOnWriteArrayList<>() ).add( ban );
+    }
+  }
+
+  /**
+   * Drop a ban from the index, bans are identified by their holder and creation
+   * @param ban Ban to drop
+   */
+  public synchronized void remove( Ban ban ) {
+    removeFrom( byHolder, ban.getHolder(), ban );
+    for( String address : ban.getIpAddresses() ) {
+      String canonical = AddressListCodec.canonical( address );
+      if( canonical != null )
+        removeFrom( byAddress, canonical, ban );
+    }
+  }
+
+  /**
+   * Deny logins of banned players, before any other plugin spends work on them
+   * @param e Event of the login
+   */
+  @EventHandler( priority = EventPriority.LOWEST )
+  public void onPreLogin( AsyncPlayerPreLoginEvent e ) {
+    String address = e.getAddress() == null ? null : e.getAddress().getHostAddress();
+
+    // Only ask the database if the index failed to load, this already runs async
+    Ban ban;
+    try {
+      ban = loaded ? find( e.getUniqueId(), address ) : BanMapper.getInst().findActiveBan( e.getUniqueId(), address );
+    } catch ( Exception ex ) {
+      // Unknown ban state, better keep everyone out than let banned players in
+      SLogging.getInst().log( "Error while checking the bans of " + e.getUniqueId() + "!", LogLevel.ERROR );
+      SLogging.getInst().log( ex );
+      e.disallow( AsyncPlayerPreLoginEvent.Result.KICK_OTHER, Messages.BANS_KICK_UNAVAILABLE.applyPrefixless() );
+      return;
+    }
+
+    if( ban == null )
+      return;
+
+    String message = ban.isPermanent() ?
+      Messages.BANS_KICK_PERM.applyPrefixless( ban.getReason() ) :
+      Messages.BANS_KICK_TEMP.applyPrefixless( ban.getReason(), new SimpleDateFormat( "dd.MM.yyyy HH:mm" ).format( ban.getExpireDate() ) );
+
+    e.disallow( AsyncPlayerPreLoginEvent.Result.KICK_BANNED, message );
+  }
+
+  /**
+   * Drop all bans which expired or got revoked in the meantime
+   */
+  private synchronized void purge() {
+    if( !loaded ) {
+      load();
+      return;
+    }
+
+    List< Ban > inactive = new ArrayList<>();
+    for( List< Ban > bans : byHolder.values() ) {
+      for( Ban ban : bans ) {
+        if( !ban.isActive() )
+          inactive.add( ban );
+      }
+    }
+
+    for( Ban ban : inactive )
+      remove( ban );
+  }
+
+  /**
+   * Find the first active ban of a list
+   * @param bans List of bans, may be null
+   * @return Active ban or null if none is active
+   */
+  private Ban findActive( List< Ban > bans ) {
+    if( bans == null )
+      return null;
+
+    for( Ban ban : bans ) {
+      if( ban.isActive() )
+        return ban;
+    }
+
+    return null;
+  }
+
+  /**
+   * Remove a ban from an index bucket, empty buckets are dropped
+   * @param index Index to remove from
+   * @param key Key of the bucket
+   * @param ban Ban to remove
+   */
+  private < K > void removeFrom( Map< K, List< Ban > > index, K key, Ban ban ) {
+    List< Ban > bans = index.get( key );
+    if( bans == null )
+      return;
+
+    bans.removeIf( b -> b.getHolder().equals( ban.getHolder() ) && b.getCreationDate() == ban.getCreationDate() );
+    if( bans.isEmpty() )
+      index.remove( key );
+  }
+
+  /**
+   * Singleton instance getter for the ban index
+   */
+  public static BanIndex getInst() {
+    if( inst == null )
+      return new BanIndex();
+
+    return inst;
+  }
+}
@@ -0,0 +1,211 @@
+package at.sps.core.cache;
+
+import at.sps.core.Main;
+import at.sps.core.orm.mappers.HomeMapper;
+import at.sps.core.orm.models.Home;
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
+import org.bukkit.event.player.PlayerLoginEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class HomeCache implements Listener {
+
+  private static HomeCache inst;
+
+  // Homes of online players, indexed by lowercase name in creation order
+  private final Map< UUID, Map< String, Home > > homes;
+
+  // Token of the latest load per player, evicting drops it so late loads don't re-insert
+  private final Map< UUID, Object > pending;
+
+  /**
+   * The home cache keeps the homes of all online players in memory, they get
+   * loaded before joining and evicted on quit. Players without a loaded entry
+   * are served by the database
+   */
+  private HomeCache() {
+    inst = this;
+    this.homes = new ConcurrentHashMap<>();
+    this.pending = new ConcurrentHashMap<>();
+
+    Bukkit.getPluginManager().registerEvents( this, Main.getInst() );
+
+    // Players which are already online (reload) don't pass the login again, the load is
+    // started right here on the main thread, so a quit before it completes cancels it
+    for( Player p : Bukkit.getOnlinePlayers() ) {
+      UUID id = p.getUniqueId();
+      Object token = begin( id );
+      HomeMapper.getInst().async( () -> {
+        load( id, token );
+        return null;
+      } );
+    }
+  }
+
+  /**
+   * Load a player's homes from the database into the cache
+   * @param playerId Home owner ID
+   */
+  public void load( UUID playerId ) {
+    load( playerId, begin( playerId ) );
+  }
+
+  /**
+   * Start loading a player's homes, replacing any load that's still running
+   * @param playerId Home owner ID
+   * @return Token of this load
+   */
+  private Object begin( UUID playerId ) {
+    Object token = new Object();
+    pending.put( playerId, token );
+    return token;
+  }
+
+  /**
+   * Load a player's homes from the database into the cache, unless the player got evicted
+   * or loaded again in the meantime. Failed loads leave the player uncached, so the database
+   * (and it's failsafes) serves the player instead of an empty list
+   * @param playerId Home owner ID
+   * @param token Token of this load, see {@link #begin(UUID)}
+   */
+  private void load( UUID playerId, Object token ) {
+    List< Home > fetched = HomeMapper.getInst().fetchHomes( playerId );
+    if( fetched == null ) {
+      pending.remove( playerId, token );
+      return;
+    }
+
+    Map< String, Home > loaded = Collections.synchronizedMap( new LinkedHashMap<>() );
+    for( Home home : fetched )
+      loaded.put( home.getName().toLowerCase(), home );
+
+    // Holding the lock keeps an eviction from slipping in between the check and the put
+    synchronized ( pending ) {
+      if( pending.remove( playerId, token ) )
+        homes.put( playerId, loaded );
+    }
+  }
+
+  /**
+   * Drop a player's homes and cancel a load that's still running
+   * @param playerId Home owner ID
+   */
+  private void evict( UUID playerId ) {
+    synchronized ( pending ) {
+      pending.remove( playerId );
+      homes.remove( playerId );
+    }
+  }
+
+  /**
+   * Check whether or not the homes of a player are cached
+   * @param playerId Home owner ID
+   * @return True if cached, false otherwise
+   */
+  public boolean isLoaded( UUID playerId ) {
+    return homes.containsKey( playerId );
+  }
+
+  /**
+   * Get a cached home by it's name
+   * @param playerId Home owner ID
+   * @param name Name of the home, case insensitive
+   * @return Home if found, null otherwise or when not loaded
+   */
+  public Home get( UUID playerId, String name ) {
+    Map< String, Home > owned = homes.get( playerId );
+    return owned == null ? null : owned.get( name.toLowerCase() );
+  }
+
+  /**
+   * List all cached homes of a player
+   * @param playerId Home owner ID
+   * @return List of homes in creation order, null when not loaded
+   */
+  public List< Home > list( UUID playerId ) {
+    Map< String, Home > owned = homes.get( playerId );
+    if( owned == null )
+      return null;
+
+    synchronized ( owned ) {
+      return new ArrayList<>( owned.values() );
+    }
+  }
+
+  /**
+   * Count all cached homes of a player
+   * @param playerId Home owner ID
+   * @return Number of homes, null when not loaded
+   */
+  public Integer count( UUID playerId ) {
+    Map< String, Home > owned = homes.get( playerId );
+    return owned == null ? null : owned.size();
+  }
+
+  /**
+   * Add a home that has been written into the database, only if it's owner is cached
+   * @param home Home to add
+   */
+  public void put( Home home ) {
+    Map< String, Home > owned = homes.get( home.getPlayerUUID() );
+    if( owned != null )
+      owned.put( home.getName().toLowerCase(), home );
+  }
+
+  /**
+   * Remove a home that has been deleted from the database
+   * @param playerId Home owner ID
+   * @param name Name of the home, case insensitive
+   */
+  public void remove( UUID playerId, String name ) {
+    Map< String, Home > owned = homes.get( playerId );
+    if( owned != null )
+      owned.remove( name.toLowerCase() );
+  }
+
+  /**
+   * Load the homes while the login is still being processed, this already runs async
+   * @param e Event of the login
+   */
+  @EventHandler( priority = EventPriority.MONITOR )
+  public void onPreLogin( AsyncPlayerPreLoginEvent e ) {
+    if( e.getLoginResult() == AsyncPlayerPreLoginEvent.Result.ALLOWED )
+      load( e.getUniqueId() );
+  }
+
+  /**
+   * Drop the homes again if the login got denied after loading
+   * @param e Event of the login
+   */
+  @EventHandler( priority = EventPriority.MONITOR )
+  public void onLogin( PlayerLoginEvent e ) {
+    if( e.getResult() != PlayerLoginEvent.Result.ALLOWED )
+      evict( e.getPlayer().getUniqueId() );
+  }
+
+  /**
+   * Evict the homes of players leaving
+   * @param e Event of the quit
+   */
+  @EventHandler
+  public void onQuit( PlayerQuitEvent e ) {
+    evict( e.getPlayer().getUniqueId() );
+  }
+
+  /**
+   * Singleton instance getter for the home cache
+   */
+  public static HomeCache getInst() {
+    if( inst == null )
+      return new HomeCache();
+
+    return inst;
+  }
+}
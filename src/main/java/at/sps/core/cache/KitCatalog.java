@@ -0,0 +1,175 @@
+package at.sps.core.cache;
+
+import at.sps.core.orm.mappers.KitMapper;
+import at.sps.core.orm.models.Kit;
+import at.sps.core.utils.LogLevel;
+import at.sps.core.utils.Pair;
+import at.sps.core.utils.SLogging;
+import lombok.Getter;
+import org.bukkit.inventory.ItemStack;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class KitCatalog {
+
+  private static KitCatalog inst;
+
+  // Entries by ID and by lowercase title
+  private final Map< Integer, Entry > byId;
+  private final Map< String, Entry > byName;
+
+  @Getter
+  private volatile boolean loaded;
+
+  /**
+   * The kit catalog keeps the metadata of all kits in memory, contents stay
+   * encoded until they're needed for the first time and are decoded only once
+   * per version of a kit
+   */
+  private KitCatalog() {
+    inst = this;
+    this.byId = new ConcurrentHashMap<>();
+    this.byName = new ConcurrentHashMap<>();
+  }
+
+  /**
+   * Load all kits from the database, replacing the current contents. If loading fails,
+   * the catalog stays unloaded and kits are served by the database instead
+   */
+  public synchronized void load() {
+    List< Pair< Kit, byte[] > > all = KitMapper.getInst().fetchAllRaw();
+    if( all == null ) {
+      loaded = false;
+      SLogging.getInst().log( "Could not load the kit catalog, serving kits from the database!", LogLevel.WARNING );
+      return;
+    }
+
+    byId.clear();
+    byName.clear();
+
+    for( Pair< Kit, byte[] > raw : all )
+      put( raw.getKey(), raw.getValue() );
+
+    loaded = true;
+  }
+
+  /**
+   * Get a kit's metadata by it's ID, the instance is shared and doesn't carry contents
+   * @param id ID of the kit
+   * @return Kit if found, null otherwise
+   */
+  public Kit getById( int id ) {
+    Entry e = byId.get( id );
+    return e == null ? null : e.meta;
+  }
+
+  /**
+   * Get a kit's metadata by it's title, the instance is shared and doesn't carry contents
+   * @param name Title of the kit, case insensitive
+   * @return Kit if found, null otherwise
+   */
+  public Kit getByName( String name ) {
+    Entry e = byName.get( name.toLowerCase() );
+    return e == null ? null : e.meta;
+  }
+
+  /**
+   * Get the contents of a kit, decoded on first use
+   * @param id ID of the kit
+   * @return Clones of all items, safe to hand out, null if not found
+   */
+  public List< ItemStack > getContents( int id ) {
+    Entry e = byId.get( id );
+    if( e == null )
+      return null;
+
+    List< ItemStack > clones = new ArrayList<>();
+    for( ItemStack item : e.decode() )
+      clones.add( item.clone() );
+    return clones;
+  }
+
+  /**
+   * Search all kits containing a term within their title
+   * @param term Term to search for, case insensitive, empty lists all
+   * @return Metadata of the matching kits sorted by title
+   */
+  public List< Kit > search( String term ) {
+    String needle = term.toLowerCase();
+    TreeMap< String, Kit > res = new TreeMap<>();
+
+    for( Map.Entry< String, Entry > e : byName.entrySet() ) {
+      if( e.getKey().contains( needle ) )
+        res.put( e.getKey(), e.getValue().meta );
+    }
+
+    return new ArrayList<>( res.values() );
+  }
+
+  /**
+   * Add or replace a kit, replacing makes the next access decode it's new contents
+   * @param meta Metadata of the kit, without contents
+   * @param raw Encoded contents
+   */
+  public synchronized void put( Kit meta, byte[] raw ) {
+    remove( meta.getTitle() );
+
+    Entry e = new Entry( meta, raw );
+    byId.put( meta.getID(), e );
+    byName.put( meta.getTitle().toLowerCase(), e );
+  }
+
+  /**
+   * Remove a kit from the catalog
+   * @param name Title of the kit, case insensitive
+   */
+  public synchronized void remove( String name ) {
+    Entry e = byName.remove( name.toLowerCase() );
+    if( e != null )
+      byId.remove( e.meta.getID() );
+  }
+
+  private static class Entry {
+
+    private final Kit meta;
+    private final byte[] raw;
+    private volatile List< ItemStack > contents;
+
+    /**
+     * A single version of a kit, with it's contents still encoded
+     * @param meta Metadata of the kit
+     * @param raw Encoded contents
+     */
+    private Entry( Kit meta, byte[] raw ) {
+      this.meta = meta;
+      this.raw = raw;
+    }
+
+    /**
+     * Decode the contents once, later calls re-use them
+     * @return Decoded items, never to be handed out directly
+     */
+    private List< ItemStack > decode() {
+      List< ItemStack > res = contents;
+      if( res != null )
+        return res;
+
+      synchronized ( this ) {
+        if( contents == null )
+          contents = raw == null || raw.length == 0 ? new ArrayList<>() : KitMapper.getInst().rebuildItems( raw );
+        return contents;
+      }
+    }
+  }
+
+  /**
+   * Singleton instance getter for the kit catalog
+   */
+  public static KitCatalog getInst() {
+    if( inst == null )
+      return new KitCatalog();
+
+    return inst;
+  }
+}
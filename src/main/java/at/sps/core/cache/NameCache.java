@@ -0,0 +1,291 @@
+package at.sps.core.cache;
+
+import at.sps.core.Main;
+import at.sps.core.conf.Settings;
+import at.sps.core.utils.LogLevel;
+import at.sps.core.utils.SLogging;
+import org.bukkit.Bukkit;
+import org.bukkit.OfflinePlayer;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerJoinEvent;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+
+public class NameCache implements Listener {
+
+  // Version of the file layout, bumped on incompatible changes
+  private static final int FILE_VERSION = 1;
+
+  // Changed names get saved every five minutes
+  private static final long SAVE_INTERVAL_TICKS = 20L * 60 * 5;
+
+  private static NameCache inst;
+
+  // Names by UUID, access ordered so the least recently used one gets dropped first
+  private final LinkedHashMap< UUID, String > names;
+
+  // UUIDs by lowercase name, kept in sync with the names
+  private final Map< String, UUID > ids;
+
+  private final File file;
+  private volatile boolean dirty;
+
+  /**
+   * The name cache keeps recently seen UUID and name pairs in memory and on disk,
+   * so names can be shown without asking the server for a profile lookup
+   */
+  private NameCache() {
+    inst = this;
+    this.ids = new HashMap<>();
+    this.file = new File( Main.getInst().getDataFolder(), "names.dat" );
+
+    int capacity = Settings.NAME_CACHE_SIZE.asInt();
+    this.names = new LinkedHashMap< UUID, String >( 16, 0.75F, true ) {
+      @Override
+      protected boolean removeEldestEntry( Map.Entry< UUID, String > eldest ) {
+        if( size() <= capacity )
+          return false;
+
+        ids.remove( eldest.getValue().toLowerCase(), eldest.getKey() );
+        return true;
+      }
+    };
+
+    Bukkit.getPluginManager().registerEvents( this, Main.getInst() );
+    Bukkit.getScheduler().runTaskTimerAsynchronously( Main.getInst(), () -> {
+      if( dirty )
+        save();
+    }, SAVE_INTERVAL_TICKS, SAVE_INTERVAL_TICKS );
+
+    // Players which are already online (reload) don't join again
+    for( Player p : Bukkit.getOnlinePlayers() )
+      put( p.getUniqueId(), p.getName() );
+  }
+
+  /**
+   * Load all pairs from the cache file, least recently used ones come first
+   */
+  public void load() {
+    if( !file.exists() )
+      return;
+
+    try ( DataInputStream in = new DataInputStream( new BufferedInputStream( new FileInputStream( file ) ) ) ) {
+      // Unknown layout, start over
+      if( in.readInt() != FILE_VERSION )
+        return;
+
+      int count = in.readInt();
+      for( int i = 0; i < count; i++ ) {
+        UUID id = new UUID( in.readLong(), in.readLong() );
+        put( id, in.readUTF() );
+      }
+
+      dirty = false;
+    } catch ( Exception e ) {
+      SLogging.getInst().log( "Error while loading the name cache!", LogLevel.ERROR );
+      SLogging.getInst().log( e );
+    }
+  }
+
+  /**
+   * Save all pairs into the cache file, written aside and swapped in so a crash never leaves half a file
+   */
+  public void save() {
+    Map< UUID, String > snapshot;
+    synchronized ( this ) {
+      snapshot = new LinkedHashMap<>( names );
+      dirty = false;
+    }
+
+    try {
+      File parent = file.getParentFile();
+      if( parent != null && !parent.exists() && !parent.mkdirs() )
+        throw new IOException( "Could not create the directory " + parent + "!" );
+
+      File temp = new File( file.getPath() + ".tmp" );
+      try ( DataOutputStream out = new DataOutputStream( new BufferedOutputStream( new FileOutputStream( temp ) ) ) ) {
+        out.writeInt( FILE_VERSION );
+        out.writeInt( snapshot.size() );
+
+        // 16 bytes of UUID and the name's length prefixed bytes per pair
+        for( Map.Entry< UUID, String > entry : snapshot.entrySet() ) {
+          out.writeLong( entry.getKey().getMostSignificantBits() );
+          out.writeLong( entry.getKey().getLeastSignificantBits() );
+          out.writeUTF( entry.getValue() );
+        }
+      }
+
+      Files.move( temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE );
+    } catch ( Exception e ) {
+      dirty = true;
+      SLogging.getInst().log( "Error while saving the name cache!", LogLevel.ERROR );
+      SLogging.getInst().log( e );
+    }
+  }
+
+  /**
+   * Remember the name of a player, a renamed player's old name gets dropped
+   * @param id UUID of the player
+   * @param name Current name of the player
+   */
+  public synchronized void put( UUID id, String name ) {
+    if( id == null || name == null )
+      return;
+
+    String previous = names.put( id, name );
+    if( name.equals( previous ) )
+      return;
+
+    if( previous != null )
+      ids.remove( previous.toLowerCase(), id );
+
+    ids.put( name.toLowerCase(), id );
+    dirty = true;
+  }
+
+  /**
+   * Get the cached name of a player, never blocks on a lookup
+   * @param id UUID of the player
+   * @return Name if cached, null otherwise
+   */
+  public synchronized String getName( UUID id ) {
+    return names.get( id );
+  }
+
+  /**
+   * Get the cached name of a player, never blocks on a lookup
+   * @param id UUID of the player
+   * @param fallback Value to use if the name is not cached
+   * @return Name if cached, the fallback otherwise
+   */
+  public String getName( UUID id, String fallback ) {
+    String name = getName( id );
+    return name == null ? fallback : name;
+  }
+
+  /**
+   * Get the cached UUID of a player by it's name, never blocks on a lookup
+   * @param name Name of the player, case insensitive
+   * @return UUID if cached, null otherwise
+   */
+  public synchronized UUID getId( String name ) {
+    UUID id = ids.get( name.toLowerCase() );
+
+    // Mark as recently used
+    if( id != null )
+      names.get( id );
+
+    return id;
+  }
+
+  /**
+   * Resolve the UUID of a player by it's name, a cached UUID is answered right away,
+   * otherwise the (possibly blocking) profile lookup runs in a background task
+   * @param name Name of the player, case insensitive
+   * @return Future of the UUID, null if the player could not be resolved, never completes exceptionally
+   */
+  @SuppressWarnings( "deprecation" )
+  public CompletableFuture< UUID > resolveId( String name ) {
+    UUID known = getId( name );
+    if( known != null )
+      return CompletableFuture.completedFuture( known );
+
+    CompletableFuture< UUID > future = new CompletableFuture<>();
+    Bukkit.getScheduler().runTaskAsynchronously( Main.getInst(), () -> {
+      try {
+        OfflinePlayer player = Bukkit.getOfflinePlayer( name );
+        if( player == null ) {
+          future.complete( null );
+          return;
+        }
+
+        if( player.getName() != null )
+          put( player.getUniqueId(), player.getName() );
+
+        future.complete( player.getUniqueId() );
+      } catch ( Exception e ) {
+        SLogging.getInst().log( "Error while resolving the UUID of " + name + "!", LogLevel.ERROR );
+        SLogging.getInst().log( e );
+        future.complete( null );
+      }
+    } );
+
+    return future;
+  }
+
+  /**
+   * Resolve the names of multiple players, cached names are answered right away and
+   * all others get looked up in one background task. Call this before rendering, so
+   * {@link #getName(UUID)} can be used afterwards
+   * @param ids UUIDs of the players, null entries are skipped
+   * @return Future of all names that could be resolved by their UUID, never completes exceptionally
+   */
+  public CompletableFuture< Map< UUID, String > > resolveAll( Collection< UUID > ids ) {
+    Map< UUID, String > resolved = new HashMap<>();
+    List< UUID > missing = new ArrayList<>();
+
+    synchronized ( this ) {
+      for( UUID id : ids ) {
+        if( id == null || resolved.containsKey( id ) )
+          continue;
+
+        String name = names.get( id );
+        if( name != null )
+          resolved.put( id, name );
+        else if( !missing.contains( id ) )
+          missing.add( id );
+      }
+    }
+
+    // Everything known already
+    if( missing.size() == 0 )
+      return CompletableFuture.completedFuture( resolved );
+
+    CompletableFuture< Map< UUID, String > > future = new CompletableFuture<>();
+    Bukkit.getScheduler().runTaskAsynchronously( Main.getInst(), () -> {
+      for( UUID id : missing ) {
+        try {
+          OfflinePlayer player = Bukkit.getOfflinePlayer( id );
+          if( player == null || player.getName() == null )
+            continue;
+
+          put( id, player.getName() );
+          resolved.put( id, player.getName() );
+        } catch ( Exception e ) {
+          SLogging.getInst().log( "Error while resolving the name of " + id + "!", LogLevel.ERROR );
+          SLogging.getInst().log( e );
+        }
+      }
+
+      future.complete( resolved );
+    } );
+
+    return future;
+  }
+
+  /**
+   * Remember the names of joining players
+   * @param e Event of the join
+   */
+  @EventHandler( priority = EventPriority.MONITOR )
+  public void onJoin( PlayerJoinEvent e ) {
+    put( e.getPlayer().getUniqueId(), e.getPlayer().getName() );
+  }
+
+  /**
+   * Singleton instance getter for the name cache
+   */
+  public static NameCache getInst() {
+    if( inst == null )
+      return new NameCache();
+
+    return inst;
+  }
+}
@@ -0,0 +1,174 @@
+package at.sps.core.cache;
+
+import at.sps.core.orm.mappers.WarpMapper;
+import at.sps.core.orm.models.Warp;
+import at.sps.core.utils.LogLevel;
+import at.sps.core.utils.SLogging;
+import lombok.Getter;
+
+import java.util.*;
+
+public class WarpRegistry {
+
+  // Length of the name fragments used for substring search
+  private static final int GRAM = 3;
+
+  private static WarpRegistry inst;
+
+  // Warps by lowercase name, sorted for listing
+  private final TreeMap< String, Warp > warps;
+
+  // Lowercase names by every fragment they contain
+  private final Map< String, Set< String > > grams;
+
+  @Getter
+  private volatile boolean loaded;
+
+  /**
+   * The warp registry keeps all warps in memory, exact lookups go through a
+   * case insensitive map and substring searches through an index of name fragments
+   */
+  private WarpRegistry() {
+    inst = this;
+    this.warps = new TreeMap<>();
+    this.grams = new HashMap<>();
+  }
+
+  /**
+   * Load all warps from the database, replacing the current contents. If loading fails,
+   * the registry stays unloaded and warps are served by the database instead
+   */
+  public void load() {
+    List< Warp > all = WarpMapper.getInst().fetchAll();
+    if( all == null ) {
+      loaded = false;
+      SLogging.getInst().log( "Could not load the warp registry, serving warps from the database!", LogLevel.WARNING );
+      return;
+    }
+
+    synchronized ( this ) {
+      warps.clear();
+      grams.clear();
+
+      for( Warp warp : all )
+        put( warp );
+
+      loaded = true;
+    }
+
+    // Creators are shown in the warp list
+    List< UUID > creators = new ArrayList<>();
+    for( Warp warp : all )
+      creators.add( warp.getCreator() );
+
+    NameCache.getInst().resolveAll( creators );
+  }
+
+  /**
+   * Get a warp by it's name
+   * @param name Name of the warp, case insensitive
+   * @return Warp if found, null otherwise
+   */
+  public synchronized Warp get( String name ) {
+    return warps.get( name.toLowerCase() );
+  }
+
+  /**
+   * Search all warps containing a term within their name
+   * @param term Term to search for, case insensitive, empty lists all
+   * @return List of matching warps sorted by name
+   */
+  public synchronized List< Warp > search( String term ) {
+    String needle = term.toLowerCase();
+
+    // Too short to use the index, the names get scanned
+    if( needle.length() < GRAM ) {
+      List< Warp > res = new ArrayList<>();
+      for( Map.Entry< String, Warp > e : warps.entrySet() ) {
+        if( e.getKey().contains( needle ) )
+          res.add( e.getValue() );
+      }
+      return res;
+    }
+
+    // Start with the smallest posting list, all fragments of the term have to occur
+    Set< String > smallest = null;
+    for( String gram : gramsOf( needle ) ) {
+      Set< String > names = grams.get( gram );
+      if( names == null )
+        return new ArrayList<>();
+
+      if( smallest == null || names.size() < smallest.size() )
+        smallest = names;
+    }
+
+    // Candidates share all fragments, make sure they actually contain the term
+    TreeSet< String > matches = new TreeSet<>();
+    for( String name : smallest ) {
+      if( name.contains( needle ) )
+        matches.add( name );
+    }
+
+    List< Warp > res = new ArrayList<>();
+    for( String name : matches )
+      res.add( warps.get( name ) );
+    return res;
+  }
+
+  /**
+   * Add or replace a warp that has been written into the database
+   * @param warp Warp to add
+   */
+  public synchronized void put( Warp warp ) {
+    String name = warp.getName().toLowerCase();
+
+    // Only index new names, replacements keep their fragments
+    if( warps.put( name, warp ) == null ) {
+      for( String gram : gramsOf( name ) )
+        grams.computeIfAbsent( gram, k -> new HashSet<>() ).add( name );
+    }
+  }
+
+  /**
+   * Remove a warp that has been deleted from the database
+   * @param name Name of the warp, case insensitive
+   */
+  public synchronized void remove( String name ) {
+    String key = name.toLowerCase();
+    if( warps.remove( key ) == null )
+      return;
+
+    // Drop the name from all it's fragments, forget empty fragments
+    for( String gram : gramsOf( key ) ) {
+      Set< String > names = grams.get( gram );
+      if( names == null )
+        continue;
+
+      names.remove( key );
+      if( names.isEmpty() )
+        grams.remove( gram );
+    }
+  }
+
+  /**
+   * Split a lowercase name into all of it's fragments
+   * @param name Name to split
+   * @return Set of distinct fragments
+   */
+  private Set< String > gramsOf( String name ) {
+    Set< String > res = new HashSet<>();
+    for( int i = 0; i + GRAM <= name.length(); i++ )
+      res.add( name.substring( i, i + GRAM ) );
+    return res;
+  }
+
+  /**
+   * Singleton instance getter for the warp registry
+   */
+  public static WarpRegistry getInst() {
+    if( inst == null )
+      return new WarpRegistry();
+
+    return inst;
+  }
+}
@@ -15,7 +15,9 @@ public enum Messages {
   PLAYER_NOT_EXISTING( "&7Der Spieler &c${0} &7existiert nicht!" ),
   PLAYER_NOT_ONLINE( "&7Der Spieler &c${0} &7ist nicht online!" ),
   PLAYER_ONLY( "&7Der Befehl &c${0}&7 kann nur als &cSpieler &7ausgeführt werden!" ),
+  UNKNOWN_NAME( "unbekannt" ),
   INTERNAL_ERR( "&4Es trat ein interner Fehler auf, bitte melde den ERRCODE ${0}!" ),
+  DB_BUSY( "&7Die Datenbank ist gerade &causgelastet&7, bitte versuche es gleich erneut!" ),
   USAGE( "&7Bitte benutze: &c${0}" ),
   MSG_OUT( "&6Du &7» &6${0}&7: ${1}" ),
   MSG_IN( "&6${0} &7» &6Dich&7: ${1}" ),
@@ -59,6 +61,8 @@ public enum Messages {
   KIT_COLOR( "&d" ),
   KIT_NONE( "&cKeine Kits erstellt!" ),
   KIT_LIST_HOVER( "&7Items: &d${0}&7, &7Beschreibung: &d${1}" ),
+  KIT_LIST_HOVER_COOLDOWN( "&7Items: &d${0}&7, &7Beschreibung: &d${1}&7, &7Verfügbar in: &c${2}" ),
+  KIT_COLOR_COOLDOWN( "&8" ),
   KIT_COOLDOWN( "&7Du musst noch &c${0} &7warten, bevor du das Kit &d${1} &7erneut anfordern kannst!" ),
   WARP_NON_EXISTING( "&7Der Warp &c${0} &7existiert nicht!" ),
   WARP_TELEPORT( "&7Du wurdest erfolgreich zum Warp &d${0} &7teleportiert!" ),
@@ -67,7 +71,7 @@ public enum Messages {
   WARP_DELETED( "&7Der Warp &d${0} &7wurde erfolgreich gelöscht!" ),
   WARP_UPDATED( "&7Der Warp &d${0} &7wurde erfolgreich geändert!" ),
   WARP_LIST( "&7Verfügbare Warps: " ),
-  WARP_LIST_HOVER( "&7Ort: &d${1}" ),
+  WARP_LIST_HOVER( "&7Ort: &d${1} &8| &7Ersteller: &d${2}" ),
   WARP_DELIMITER( "&7, " ),
   WARP_COLOR( "&d" ),
   WARP_NONE( "&cKeine Warps verfügbar!" ),
@@ -86,6 +90,7 @@ public enum Messages {
     "&7Dieses Item zeigt Dir, auf",
     "&7welcher Seite Du bist"
   ),
+  PAGER_LOADING_TITLE( "&7Wird geladen..." ),
   BANS_PAGE_TITLE( "&8${0}" ),
   BANS_NO_PREV( "&7Du bist bereits an der &cersten Seite &7angekommen!" ),
   BANS_NO_NEXT( "&7Du bist bereits an der &cletzten Seite &7angekommen!" ),
@@ -102,7 +107,20 @@ public enum Messages {
   BANS_ITEM_PERM_TITLE( "&4Permanenter Bann" ),
   BANS_ITEM_TEMP_TITLE( "&6Temporärer Bann" ),
   BANS_ITEM_OVER_PERM_TITLE( "&2Permanenter Bann" ),
-  BANS_ITEM_OVER_TEMP_TITLE( "&2Permanenter Bann" );
+  BANS_ITEM_OVER_TEMP_TITLE( "&2Permanenter Bann" ),
+  BANS_KICK_PERM(
+    "&4Du bist permanent gebannt!",
+    "&7Grund: &d${0}"
+  ),
+  BANS_KICK_TEMP(
+    "&6Du bist temporär gebannt!",
+    "&7Grund: &d${0}",
+    "&7Bis: &d${1}"
+  ),
+  BANS_KICK_UNAVAILABLE(
+    "&cDein Bann-Status konnte nicht geprüft werden!",
+    "&7Bitte versuche es in Kürze erneut."
+  );
 
   @Setter @Getter
   private String[] internalTemplate;
@@ -55,6 +55,32 @@ public class SPSConfig extends YamlConfiguration {
       wrote = true;
     }
 
+    // Write all settings
+    for( Settings setting : Settings.values() ) {
+      String key = "Settings." + setting;
+      Object def = setting.getInternalValue();
+
+      // This value is already existent in config, only take it if it's of the default's kind
+      if( isSet( key ) ) {
+        Object val = get( key );
+
+        if( def instanceof Number && val instanceof Number )
+          setting.setInternalValue( val );
+        else if( def instanceof Boolean && val instanceof Boolean )
+          setting.setInternalValue( val );
+        else if( def instanceof String )
+          setting.setInternalValue( String.valueOf( val ) );
+        else
+          SLogging.getInst().log( "Invalid value for setting " + key + ", using the default!", LogLevel.WARNING );
+
+        continue;
+      }
+
+      // Write the default value
+      set( key, def );
+      wrote = true;
+    }
+
     // If something got added, write changes
     if( wrote )
       save( file );
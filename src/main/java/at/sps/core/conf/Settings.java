@@ -0,0 +1,72 @@
+package at.sps.core.conf;
+
+import lombok.Getter;
+import lombok.Setter;
+
+public enum Settings {
+
+  DB_HOST( "localhost" ),
+  DB_PORT( 3306 ),
+  DB_NAME( "sps" ),
+  DB_USERNAME( "root" ),
+  DB_PASSWORD( "" ),
+  DB_POOL_MIN_SIZE( 2 ),
+  DB_POOL_MAX_SIZE( 8 ),
+  DB_POOL_IDLE_TIMEOUT_MS( 300000 ),
+  DB_POOL_BORROW_TIMEOUT_MS( 5000 ),
+  DB_POOL_VALIDATION_TIMEOUT_S( 2 ),
+  DB_POOL_LEAK_THRESHOLD_MS( 10000 ),
+  DB_POOL_LEAK_TRACE( false ),
+  DB_POOL_MAINTENANCE_INTERVAL_MS( 30000 ),
+  DB_STATEMENT_CACHE_SIZE( 64 ),
+  DB_BATCH_SIZE( 500 ),
+  DB_STREAM_FETCH_SIZE( 0 ),
+  DB_WRITE_BEHIND_INTERVAL_MS( 2000 ),
+  DB_WRITE_BEHIND_MAX_LAG_MS( 10000 ),
+  DB_ASYNC_WORKERS( 4 ),
+  DB_ASYNC_QUEUE_SIZE( 256 ),
+  DB_EXPLAIN_QUERIES( false ),
+  NAME_CACHE_SIZE( 10000 );
+
+  @Setter @Getter
+  private Object internalValue;
+
+  /**
+   * Internal constructor to set the default value corresponding to the enum
+   */
+  Settings( Object value ) {
+    this.internalValue = value;
+  }
+
+  /**
+   * Get the value as a string
+   * @return String representation of the value
+   */
+  public String asString() {
+    return String.valueOf( internalValue );
+  }
+
+  /**
+   * Get the value as an integer, numbers from YAML may come in any width
+   * @return Integer value
+   */
+  public int asInt() {
+    return ( ( Number ) internalValue ).intValue();
+  }
+
+  /**
+   * Get the value as a long, numbers from YAML may come in any width
+   * @return Long value
+   */
+  public long asLong() {
+    return ( ( Number ) internalValue ).longValue();
+  }
+
+  /**
+   * Get the value as a boolean
+   * @return Boolean value
+   */
+  public boolean asBoolean() {
+    return ( Boolean ) internalValue;
+  }
+}
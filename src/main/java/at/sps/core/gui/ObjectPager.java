@@ -1,24 +1,37 @@
 package at.sps.core.gui;
 
+import at.sps.core.Main;
 import at.sps.core.conf.Messages;
+import at.sps.core.orm.MariaDB;
 import at.sps.core.utils.*;
+import org.bukkit.Bukkit;
 import org.bukkit.Material;
 import org.bukkit.entity.Player;
 import org.bukkit.event.Listener;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.inventory.meta.SkullMeta;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
 
 public class ObjectPager< T > extends InventoryGUI implements Listener {
 
+  // Number of recently visited pages to keep around
+  private static final int PAGE_CACHE_SIZE = 4;
+
   private final Player viewer;
-  private final List< T > objects;
-  private final List< ItemStack > items;
+  private final PageSource< T > source;
+  private final Map< Integer, List< T > > pageCache;
+  private final Map< Integer, CompletableFuture< List< T > > > loading;
+  private final Map< Integer, T > pageEnds;
+  private final Map< T, ItemStack > rendered;
+  private final Set< T > translating;
+  private List< T > objects;
   private ParamCall< T > clickCall;
   private ParamFuncCB< T, ItemStack > translator;
+  private ItemStack placeholder;
   private int page, pages, pageSize;
+  private boolean busy, asyncTranslation;
 
   /**
    * Open up a new pager for a list of objects, so the viewer can choose, every
@@ -29,22 +42,49 @@ public class ObjectPager< T > extends InventoryGUI implements Listener {
    * @param objects List of objects to page through
    */
   public ObjectPager( Player viewer, String title, int rows, List< T > objects ) {
+    this( viewer, title, rows, PageSource.ofList( objects ) );
+  }
+
+  /**
+   * Open up a new pager for a source of objects which gets loaded page by page, so
+   * the viewer can choose, every click will call the listener with that clicked object
+   * @param viewer Viewer of the inventory
+   * @param title Inventory title
+   * @param rows Number of effective rows
+   * @param source Source to load pages of objects from
+   */
+  public ObjectPager( Player viewer, String title, int rows, PageSource< T > source ) {
     // Rows + 1 since there is 1 control row
     super( title, rows + 1 );
 
     this.viewer = viewer;
-    this.objects = objects;
-    this.items = new ArrayList<>();
+    this.source = source;
+    this.objects = new ArrayList<>();
+    this.pageSize = inv.getSize() - 9;
+    this.loading = new HashMap<>();
+    this.pageEnds = new HashMap<>();
+
+    // Translations live as long as their object, so they're dropped along with evicted pages
+    this.rendered = new WeakHashMap<>();
+    this.translating = Collections.newSetFromMap( new WeakHashMap<>() );
+
+    // Access ordered, so the least recently viewed page gets dropped first
+    this.pageCache = new LinkedHashMap< Integer, List< T > >( 16, 0.75F, true ) {
+      @Override
+      protected boolean removeEldestEntry( Map.Entry< Integer, List< T > > eldest ) {
+        return size() > PAGE_CACHE_SIZE;
+      }
+    };
 
     setClickListener( pair -> onClick( pair.getValue(), pair.getKey() ) );
   }
 
   /**
-   * Build the inventory based on the objects provided
+   * Build the inventory based on the number of objects available
+   * @param count Total number of objects
    */
-  private void buildInventory() {
-    pageSize = inv.getSize() - 9;
-    pages = ( int ) Math.ceil( items.size() / ( float ) pageSize );
+  private void buildInventory( int count ) {
+    pages = ( int ) Math.ceil( count / ( float ) pageSize );
 
     // Previous page item
     inv.setItem( 28, new ItemBuilder( Material.SKULL_ITEM, 1, 3 )
@@ -85,12 +125,72 @@ public class ObjectPager< T > extends InventoryGUI implements Listener {
   }
 
   /**
-   * Translate all objects into itemstacks based on the provided translator func
+   * Load a page from the cache or the source, a page which is already
+   * being loaded (prefetched) shares the pending result
+   * @param target Number of the page
+   * @return Future of the page's objects
    */
-  private void translateObjects() {
-    // Add all objects as itemstacks to the items cache list
-    for( T obj : this.objects )
-      items.add( this.translator.call( obj ) );
+  private CompletableFuture< List< T > > loadPage( int target ) {
+    List< T > cached = pageCache.get( target );
+    if( cached != null )
+      return CompletableFuture.completedFuture( cached );
+
+    CompletableFuture< List< T > > pending = loading.get( target );
+    if( pending != null )
+      return pending;
+
+    // Seek past the last object of the previous page
+    pending = source.fetchPage( target, target == 0 ? null : pageEnds.get( target - 1 ), pageSize );
+    loading.put( target, pending );
+    return pending;
+  }
+
+  /**
+   * Store a loaded page and remember it's end for seeking to the next one, main thread only
+   * @param target Number of the page
+   * @param loaded Objects of the page
+   */
+  private void storePage( int target, List< T > loaded ) {
+    loading.remove( target );
+    pageCache.put( target, loaded );
+
+    if( loaded.size() > 0 )
+      pageEnds.put( target, loaded.get( loaded.size() - 1 ) );
+  }
+
+  /**
+   * Load the page following the current one in the background, if it exists
+   */
+  private void prefetchNext() {
+    int next = page + 1;
+    if( next >= pages || pageCache.containsKey( next ) || loading.containsKey( next ) )
+      return;
+
+    // A failed prefetch is just forgotten, paging there loads (and reports) it again
+    SyncExecutor.getInst().resume( loadPage( next ), loaded -> storePage( next, loaded ), error -> loading.remove( next ) );
+  }
+
+  /**
+   * Switch to another page as soon as it's objects are available
+   * @param target Number of the page
+   */
+  private void showPage( int target ) {
+    busy = true;
+
+    // A failed page must not lock the pager, it can be retried by paging again
+    SyncExecutor.getInst().resume( loadPage( target ), loaded -> {
+      busy = false;
+      storePage( target, loaded );
+
+      page = target;
+      objects = loaded;
+      renderPage();
+      prefetchNext();
+    }, error -> {
+      busy = false;
+      loading.remove( target );
+      viewer.sendMessage( MariaDB.isBusy( error ) ? Messages.DB_BUSY.apply() : Messages.INTERNAL_ERR.apply( "PAGER" ) );
+    } );
   }
 
   /**
@@ -114,15 +214,100 @@ public class ObjectPager< T > extends InventoryGUI implements Listener {
   }
 
   /**
-   * Render out the current page while simultaneously cleaning remaining slots
+   * Translate objects on a background thread, since translators may need to look
+   * up profiles or files, those objects show up as soon as they're done
+   * @param async Whether or not to translate in the background
+   * @return Instance for builder pattern
+   */
+  public ObjectPager< T > setAsyncTranslation( boolean async ) {
+    this.asyncTranslation = async;
+    return this;
+  }
+
+  /**
+   * Render out the current page while simultaneously cleaning remaining slots, only the
+   * visible objects get translated, each one just once
    */
   private void renderPage() {
     updatePageItem();
 
-    for( int i = 0; i < 27; i++ ) {
-      int itemInd = ( 27 * page ) + i;
-      inv.setItem( i, items.size() > itemInd ? items.get( itemInd ) : null );
+    List< T > missing = new ArrayList<>();
+    for( int i = 0; i < pageSize; i++ ) {
+      // Empty slot
+      if( objects.size() <= i ) {
+        inv.setItem( i, null );
+        continue;
+      }
+
+      T obj = objects.get( i );
+
+      // Translate in place unless it's done in the background
+      if( !rendered.containsKey( obj ) && !asyncTranslation )
+        rendered.put( obj, translator.call( obj ) );
+
+      // Show a placeholder until the background translation is done
+      if( !rendered.containsKey( obj ) ) {
+        if( translating.add( obj ) )
+          missing.add( obj );
+
+        inv.setItem( i, getPlaceholder() );
+        continue;
+      }
+
+      inv.setItem( i, rendered.get( obj ) );
     }
+
+    if( missing.size() > 0 )
+      translateAsync( page, missing );
+  }
+
+  /**
+   * Translate objects on a background thread, then render their page again if it's still shown
+   * @param target Number of the page the objects are on
+   * @param missing Objects to translate
+   */
+  private void translateAsync( int target, List< T > missing ) {
+    CompletableFuture< List< ItemStack > > future = new CompletableFuture<>();
+
+    Bukkit.getScheduler().runTaskAsynchronously( Main.getInst(), () -> {
+      try {
+        List< ItemStack > buf = new ArrayList<>();
+        for( T obj : missing )
+          buf.add( translator.call( obj ) );
+
+        future.complete( buf );
+      } catch ( Exception e ) {
+        future.completeExceptionally( e );
+      }
+    } );
+
+    // Failed translations may be retried on the next render
+    future.whenComplete( ( items, error ) -> {
+      if( error != null )
+        SyncExecutor.getInst().execute( () -> translating.removeAll( missing ) );
+    } );
+
+    SyncExecutor.getInst().resume( future, items -> {
+      for( int i = 0; i < missing.size(); i++ ) {
+        rendered.put( missing.get( i ), items.get( i ) );
+        translating.remove( missing.get( i ) );
+      }
+
+      // Viewer has moved on to another page in the meantime
+      if( page == target )
+        renderPage();
+    } );
+  }
+
+  /**
+   * Get the item shown for objects that are still being translated
+   * @return Placeholder item
+   */
+  private ItemStack getPlaceholder() {
+    if( placeholder == null )
+      placeholder = new ItemBuilder( Material.STAINED_GLASS_PANE, 1 ).setDurability( 8 ).setName( Messages.PAGER_LOADING_TITLE.getTemplate() ).build();
+
+    return placeholder;
   }
 
   /**
@@ -134,12 +319,32 @@ public class ObjectPager< T > extends InventoryGUI implements Listener {
       if( translator == null )
         throw new IllegalStateException( "No object translator found, this is mandatory!" );
 
-      // Translate items and build inventory
-      translateObjects();
-      buildInventory();
-      renderPage();
-
-      viewer.openInventory( inv );
+      // Only the first page and the count are needed to open up
+      busy = true;
+      CompletableFuture< List< T > > first = loadPage( 0 );
+      SyncExecutor.getInst().resume( source.count().thenCombine( first, Pair::new ), loaded -> {
+        storePage( 0, loaded.getValue() );
+        busy = false;
+
+        // Viewer left in the meantime
+        if( !viewer.isOnline() ) {
+          destroy();
+          return;
+        }
+
+        objects = loaded.getValue();
+        buildInventory( loaded.getKey() );
+        renderPage();
+
+        viewer.openInventory( inv );
+        prefetchNext();
+      }, error -> {
+        // Nothing has been shown yet, so there's nothing to retry on
+        busy = false;
+        loading.remove( 0 );
+        destroy();
+        viewer.sendMessage( MariaDB.isBusy( error ) ? Messages.DB_BUSY.apply() : Messages.INTERNAL_ERR.apply( "PAGER" ) );
+      } );
     } catch ( Exception e ) {
       SLogging.getInst().log( "Error while opening an ObjectPager for the viewer!", LogLevel.ERROR );
       SLogging.getInst().log( e );
@@ -152,6 +357,10 @@ public class ObjectPager< T > extends InventoryGUI implements Listener {
    * @param sl Slot that has been clicked on
    */
   private void onClick( ItemStack is, int sl ) {
+    // Ignore clicks while a page is still loading
+    if( busy )
+      return;
+
     // If the clicked item is a skull which can hold owner names (3)
     if( is.getType() == Material.SKULL_ITEM && is.getDurability() == 3 ) {
       String owner = ( ( SkullMeta ) is.getItemMeta() ).getOwner();
@@ -172,20 +381,18 @@ public class ObjectPager< T > extends InventoryGUI implements Listener {
 
     // Within page size, thus it's a object
     if( sl < pageSize ) {
-      int ind = page * 27 + sl;
-
       // No item at that location
-      if( ind > objects.size() - 1 )
+      if( sl > objects.size() - 1 )
         return;
 
       // Call callback
-      T targ = objects.get( ind );
+      T targ = objects.get( sl );
       clickCall.call( targ );
     }
   }
 
   /**
-   * Go to the previous page by decreasing page by 1, then re-render
+   * Go to the previous page by decreasing page by 1, then re-render once loaded
    */
   private void prevPage() {
     if( page == 0 ) {
@@ -193,20 +400,18 @@ public class ObjectPager< T > extends InventoryGUI implements Listener {
       return;
     }
 
-    page--;
-    renderPage();
+    showPage( page - 1 );
   }
 
   /**
-   * Go to the next page by increasing page by 1, then re-render
+   * Go to the next page by increasing page by 1, then re-render once loaded
    */
   private void nextPage() {
-    if( page == pages - 1 ) {
+    if( page >= pages - 1 ) {
       viewer.sendMessage( Messages.BANS_NO_NEXT.apply() );
       return;
     }
 
-    page++;
-    renderPage();
+    showPage( page + 1 );
   }
 }
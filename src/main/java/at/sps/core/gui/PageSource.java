@@ -0,0 +1,46 @@
+package at.sps.core.gui;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+public interface PageSource< T > {
+
+  /**
+   * Load a single page of objects, keyset based sources seek past the last object
+   * of the previous page, offset based sources may use the page number instead
+   * @param page Number of the page, 0-based
+   * @param after Last object of the previous page, null for the first page
+   * @param limit Max. number of objects on the page
+   * @return Future of the page's objects, less than limit on the last page
+   */
+  CompletableFuture< List< T > > fetchPage( int page, T after, int limit );
+
+  /**
+   * Count all objects of this source, should be answerable from an index
+   * @return Future of the total number of objects
+   */
+  CompletableFuture< Integer > count();
+
+  /**
+   * Create a source over an already loaded list of objects
+   * @param objects Objects to page through
+   * @return Source which slices the list
+   */
+  static < T > PageSource< T > ofList( List< T > objects ) {
+    return new PageSource< T >() {
+
+      @Override
+      public CompletableFuture< List< T > > fetchPage( int page, T after, int limit ) {
+        int from = Math.min( page * limit, objects.size() );
+        int to = Math.min( from + limit, objects.size() );
+        return CompletableFuture.completedFuture( new ArrayList<>( objects.subList( from, to ) ) );
+      }
+
+      @Override
+      public CompletableFuture< Integer > count() {
+        return CompletableFuture.completedFuture( objects.size() );
+      }
+    };
+  }
+}
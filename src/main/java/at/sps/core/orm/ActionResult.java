@@ -19,6 +19,9 @@ public enum ActionResult {
   ALREADY_EXISTENT,
 
   // This data didn't exist
-  NON_EXISTENT
+  NON_EXISTENT,
+
+  // The max. number of allowed entries has been reached
+  LIMIT_REACHED
 
 }
@@ -1,19 +1,37 @@
 package at.sps.core.orm;
 
+import at.sps.core.utils.ParamFuncCB;
 import lombok.Getter;
 
-import java.lang.reflect.Field;
-
 public class ColInfo {
 
   @Getter
-  private final String name, type, length;
+  private final String name;
+
+  @Getter
+  private String type, length;
 
   @Getter
   private final boolean unique, nullable;
 
   @Getter
-  private final Field target;
+  private final String fieldName;
+
+  @Getter
+  private final Class< ? > fieldType;
+
+  @Getter
+  private final ColumnAccessor accessor;
+
+  @Getter
+  private ColumnCodec codec;
+
+  // Conversions in both directions, resolved once when the mapper gets built
+  @Getter
+  private ColumnReader reader;
+
+  @Getter
+  private ParamFuncCB< Object, Object > writer;
 
   /**
    * Represents information about a mapped column for r/w, contains SQL column
@@ -22,14 +40,47 @@ public class ColInfo {
    * @param type Datatype of the column
    * @param length Length of the datatype
    * @param unique If this is a unique key
-   * @param target Target field for reflect use
+   * @param nullable If this column is nullable
+   * @param fieldName Name of the target field
+   * @param fieldType Type of the target field
+   * @param accessor Compiled access to the target, starting at the model
    */
-  public ColInfo( String name, String type, String length, boolean unique, boolean nullable, Field target ) {
+  public ColInfo( String name, String type, String length, boolean unique, boolean nullable, String fieldName, Class< ? > fieldType, ColumnAccessor accessor ) {
     this.name = name;
     this.type = type;
     this.length = length;
     this.unique = unique;
     this.nullable = nullable;
-    this.target = target;
+    this.fieldName = fieldName;
+    this.fieldType = fieldType;
+    this.accessor = accessor;
+    this.reader = ColumnReader.forType( fieldType );
+  }
+
+  /**
+   * Store this column's values through a codec, which also dictates the datatype
+   * @param codec Codec to apply, null to store values as they are
+   */
+  void applyCodec( ColumnCodec codec ) {
+    this.codec = codec;
+
+    if( codec != null ) {
+      this.type = codec.getType();
+      this.length = "";
+      this.reader = codec::decode;
+      this.writer = codec::encode;
+    }
+  }
+
+  /**
+   * Convert this column's values in both directions, keeps the datatype
+   * @param writer Conversion of the field's value into a bindable one, null to bind as is
+   * @param reader Conversion of the column into the field's value, null to keep the current one
+   */
+  void applyConverter( ParamFuncCB< Object, Object > writer, ColumnReader reader ) {
+    this.writer = writer;
+
+    if( reader != null )
+      this.reader = reader;
   }
 }
@@ -0,0 +1,18 @@
+package at.sps.core.orm;
+
+public interface ColumnAccessor {
+
+  /**
+   * Get the column's value within a model
+   * @param holder Model to read from
+   * @return Value of the column's field, null if any holder on the way is null
+   */
+  Object get( Object holder );
+
+  /**
+   * Set the column's value within a model
+   * @param holder Model to write into
+   * @param value Value to set, has to match the field's type
+   */
+  void set( Object holder, Object value );
+}
@@ -0,0 +1,53 @@
+package at.sps.core.orm;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+public interface ColumnCodec {
+
+  /**
+   * Get the SQL datatype this codec stores it's values in
+   * @return Datatype including it's length, like BINARY(16)
+   */
+  String getType();
+
+  /**
+   * Encode a field's value for binding it to a statement
+   * @param value Value of the field, never null
+   * @return Value the driver is able to bind
+   */
+  Object encode( Object value );
+
+  /**
+   * Decode a column of the current row into the field's type
+   * @param rs Result set positioned on the row
+   * @param column Index of the column, 1-based
+   * @return Decoded value, null if the column is null
+   */
+  Object decode( ResultSet rs, int column ) throws SQLException;
+
+  /**
+   * Convert a value which has been stored before this codec applied to the column, used
+   * when migrating existing tables
+   * @param rs Result set positioned on the row
+   * @param column Name of the column holding the legacy value
+   * @return Value the driver is able to bind for the new datatype
+   */
+  Object migrate( ResultSet rs, String column ) throws SQLException;
+
+  /**
+   * Prepare the codec before any table using it gets built, like creating lookup tables
+   * @param database Database the codec's tables live in
+   */
+  default void prepare( MariaDB database ) throws Exception {}
+
+  /**
+   * Prepare converting the legacy values of a column, called before any of them gets
+   * migrated, so {@link #migrate(ResultSet, String)} doesn't have to query on it's own
+   * @param database Database the table lives in
+   * @param table Name of the table
+   * @param column Name of the column holding the legacy values
+   */
+  default void prepareMigration( MariaDB database, String table, String column ) throws Exception {}
+
+}
@@ -0,0 +1,57 @@
+package at.sps.core.orm;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+public interface ColumnReader {
+
+  /**
+   * Read a column of the current row into a field's type
+   * @param rs Result set positioned on the row
+   * @param column Index of the column, 1-based
+   * @return Value for the field, null if the column is null
+   */
+  Object read( ResultSet rs, int column ) throws SQLException;
+
+  /**
+   * Get the reader matching a field's type, using the driver's typed getters
+   * so no boxing or conversion happens through getObject
+   * @param type Type of the field
+   * @return Reader for the type, falls back to the driver's object mapping
+   */
+  static ColumnReader forType( Class< ? > type ) {
+    // Primitives can't hold null, those take the driver's default
+    if( type == int.class )
+      return ResultSet::getInt;
+
+    if( type == long.class )
+      return ResultSet::getLong;
+
+    if( type == double.class )
+      return ResultSet::getDouble;
+
+    if( type == float.class )
+      return ResultSet::getFloat;
+
+    if( type == String.class )
+      return ResultSet::getString;
+
+    if( type == byte[].class )
+      return ResultSet::getBytes;
+
+    // Boxed types keep null
+    if( type == Integer.class )
+      return ( rs, column ) -> { int v = rs.getInt( column ); return rs.wasNull() ? null : v; };
+
+    if( type == Long.class )
+      return ( rs, column ) -> { long v = rs.getLong( column ); return rs.wasNull() ? null : v; };
+
+    if( type == Double.class )
+      return ( rs, column ) -> { double v = rs.getDouble( column ); return rs.wasNull() ? null : v; };
+
+    if( type == Float.class )
+      return ( rs, column ) -> { float v = rs.getFloat( column ); return rs.wasNull() ? null : v; };
+
+    return ResultSet::getObject;
+  }
+}
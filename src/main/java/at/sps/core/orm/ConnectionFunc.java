@@ -0,0 +1,14 @@
+package at.sps.core.orm;
+
+import java.sql.SQLException;
+
+public interface ConnectionFunc< O > {
+
+  /**
+   * Work with a borrowed connection, which is only valid during this call
+   * @param conn Connection to execute on
+   * @return Output value O
+   */
+  O call( PooledConnection conn ) throws SQLException;
+
+}
@@ -0,0 +1,329 @@
+package at.sps.core.orm;
+
+import at.sps.core.utils.LogLevel;
+import at.sps.core.utils.SLogging;
+
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ConnectionPool {
+
+  // Connections that have been used this recently are not validated again on borrow
+  private static final long VALIDATION_BYPASS_MS = 500;
+
+  private final String url, username, password;
+  private final int minSize, maxSize, validationTimeout, statementCacheSize;
+  private final long idleTimeout, borrowTimeout, leakThreshold;
+  private final boolean leakTrace;
+
+  private final LinkedBlockingDeque< PooledConnection > idle;
+  private final Set< PooledConnection > borrowed;
+  private final AtomicInteger total;
+  private final List< String > hotStatements;
+  private final ScheduledExecutorService maintainer;
+  private volatile boolean closed;
+
+  /**
+   * Create a new pool of physical connections which get borrowed per query and returned
+   * right afterwards. Idle connections above the minimum get evicted, dead ones get replaced
+   * transparently and connections held for too long get reported as leaks
+   * @param url JDBC connection url
+   * @param username Username for auth
+   * @param password Password for auth
+   * @param minSize Number of connections to keep open at all times
+   * @param maxSize Max. number of connections to open at the same time
+   * @param idleTimeout Time in ms after which an idle connection above the minimum gets closed
+   * @param borrowTimeout Time in ms to wait for a free connection before giving up
+   * @param validationTimeout Time in seconds a connection may take to respond to validation
+   * @param leakThreshold Time in ms after which a borrowed connection is reported as a leak, 0 disables
+   * @param leakTrace Whether or not to capture the borrowing call site for leak reports, costly, only for debugging
+   * @param maintenanceInterval Time in ms between eviction, refill and leak detection runs
+   * @param statementCacheSize Max. number of cached prepared statements per connection
+   */
+  public ConnectionPool(
+    String url, String username, String password, int minSize, int maxSize, long idleTimeout,
+    long borrowTimeout, int validationTimeout, long leakThreshold, boolean leakTrace, long maintenanceInterval,
+    int statementCacheSize
+  ) {
+    this.url = url;
+    this.username = username;
+    this.password = password;
+    this.maxSize = Math.max( 1, maxSize );
+    this.minSize = Math.max( 0, Math.min( minSize, this.maxSize ) );
+    this.idleTimeout = idleTimeout;
+    this.borrowTimeout = borrowTimeout;
+    this.validationTimeout = validationTimeout;
+    this.leakThreshold = leakThreshold;
+    this.leakTrace = leakThreshold > 0 && leakTrace;
+    this.statementCacheSize = statementCacheSize;
+
+    this.idle = new LinkedBlockingDeque<>();
+    this.borrowed = ConcurrentHashMap.newKeySet();
+    this.total = new AtomicInteger();
+    this.hotStatements = new CopyOnWriteArrayList<>();
+
+    // Maintenance runs on it's own daemon thread, so it never holds up a shutdown
+    this.maintainer = Executors.newSingleThreadScheduledExecutor( r -> {
+      Thread t = new Thread( r, "SPS-DB-Pool" );
+      t.setDaemon( true );
+      return t;
+    } );
+    this.maintainer.scheduleWithFixedDelay( this::maintain, maintenanceInterval, maintenanceInterval, TimeUnit.MILLISECONDS );
+
+    // Open up the minimum amount of connections right away
+    fillUp();
+  }
+
+  /**
+   * Borrow a validated connection from the pool, this either re-uses an idle one, opens
+   * up a new one if the pool may still grow or waits until one is being released
+   * @return Borrowed connection, has to be released using {@link #release(PooledConnection, boolean)}
+   * @throws SQLException No connection available in time or opening failed
+   */
+  public PooledConnection borrow() throws SQLException {
+    long deadline = System.currentTimeMillis() + borrowTimeout;
+
+    while( true ) {
+      if( closed )
+        throw new SQLException( "The connection pool has already been closed!" );
+
+      // Prefer the most recently used connection, grow if none is idle
+      PooledConnection pc = idle.pollFirst();
+      if( pc == null )
+        pc = tryGrow();
+
+      // Pool is exhausted, wait for a connection to be released
+      if( pc == null ) {
+        long remaining = deadline - System.currentTimeMillis();
+        if( remaining <= 0 )
+          throw new SQLTimeoutException( "Timed out while waiting for a free database connection!" );
+
+        try {
+          pc = idle.pollFirst( remaining, TimeUnit.MILLISECONDS );
+        } catch ( InterruptedException e ) {
+          Thread.currentThread().interrupt();
+          throw new SQLException( "Interrupted while waiting for a free database connection!" );
+        }
+
+        if( pc == null )
+          continue;
+      }
+
+      // Dead connection, throw it away and try the next one
+      if( !isAlive( pc ) ) {
+        discard( pc );
+        continue;
+      }
+
+      pc.markBorrowed( leakTrace );
+      borrowed.add( pc );
+
+      // Prepare hot statements registered since this connection has last been used
+      pc.warmUp( hotStatements );
+      return pc;
+    }
+  }
+
+  /**
+   * Release a previously borrowed connection back into the pool
+   * @param pc Connection to release
+   * @param broken Whether or not the connection failed, broken ones get closed
+   */
+  public void release( PooledConnection pc, boolean broken ) {
+    if( pc == null || !borrowed.remove( pc ) )
+      return;
+
+    if( broken || closed ) {
+      discard( pc );
+      return;
+    }
+
+    try {
+      // Never hand out a connection with a pending transaction
+      if( !pc.getConn().getAutoCommit() ) {
+        pc.getConn().rollback();
+        pc.getConn().setAutoCommit( true );
+      }
+    } catch ( SQLException e ) {
+      discard( pc );
+      return;
+    }
+
+    pc.markReturned();
+    idle.offerFirst( pc );
+  }
+
+  /**
+   * Register a frequently used query, which gets prepared on every connection of this pool
+   * @param query Query to prepare ahead of time
+   */
+  public void addHotStatement( String query ) {
+    if( !hotStatements.contains( query ) )
+      hotStatements.add( query );
+  }
+
+  /**
+   * Borrow every idle connection once, so all of them prepare their hot statements now
+   * instead of on the first real query
+   */
+  public void warmUp() {
+    List< PooledConnection > warmed = new ArrayList<>();
+
+    try {
+      while( idle.size() > 0 )
+        warmed.add( borrow() );
+    } catch ( SQLException e ) {
+      SLogging.getInst().log( "Error while warming up the connection pool!", LogLevel.ERROR );
+      SLogging.getInst().log( e );
+    }
+
+    for( PooledConnection pc : warmed )
+      release( pc, false );
+  }
+
+  /**
+   * Close all connections and stop the maintenance, borrowed connections are closed too
+   */
+  public void close() {
+    closed = true;
+    maintainer.shutdownNow();
+
+    // Report connections that are still in use, they won't be usable afterwards
+    if( borrowed.size() > 0 )
+      SLogging.getInst().log( "Closing " + borrowed.size() + " database connections which are still in use!", LogLevel.WARNING );
+
+    for( PooledConnection pc : borrowed )
+      discard( pc );
+    borrowed.clear();
+
+    PooledConnection pc;
+    while( ( pc = idle.pollFirst() ) != null )
+      discard( pc );
+  }
+
+  /**
+   * Get the number of currently open physical connections
+   * @return Number of connections, idle and borrowed
+   */
+  public int getSize() {
+    return total.get();
+  }
+
+  /**
+   * Open up a new connection if the max. size has not yet been reached
+   * @return New connection or null if the pool is at it's limit
+   * @throws SQLException Connection could not be opened
+   */
+  private PooledConnection tryGrow() throws SQLException {
+    // Reserve a slot first, so concurrent borrowers can't exceed the max. size
+    int curr;
+    do {
+      curr = total.get();
+      if( curr >= maxSize )
+        return null;
+    } while( !total.compareAndSet( curr, curr + 1 ) );
+
+    try {
+      return new PooledConnection( DriverManager.getConnection( url, username, password ), statementCacheSize );
+    } catch ( SQLException e ) {
+      total.decrementAndGet();
+      throw e;
+    }
+  }
+
+  /**
+   * Check whether or not a connection is still usable, recently used ones are trusted
+   * @param pc Connection to check
+   * @return True if alive, false otherwise
+   */
+  private boolean isAlive( PooledConnection pc ) {
+    try {
+      if( pc.getConn().isClosed() )
+        return false;
+
+      if( System.currentTimeMillis() - pc.getLastUsed() < VALIDATION_BYPASS_MS )
+        return true;
+
+      return pc.getConn().isValid( validationTimeout );
+    } catch ( SQLException e ) {
+      return false;
+    }
+  }
+
+  /**
+   * Close a connection and remove it from the pool's count
+   * @param pc Connection to discard
+   */
+  private void discard( PooledConnection pc ) {
+    total.decrementAndGet();
+
+    try {
+      pc.getConn().close();
+    } catch ( SQLException ignored ) {
+      // Connection is being thrown away anyways
+    }
+  }
+
+  /**
+   * Open up new connections until the min. size has been reached
+   */
+  private void fillUp() {
+    try {
+      while( !closed && total.get() < minSize ) {
+        PooledConnection pc = tryGrow();
+        if( pc == null )
+          break;
+
+        idle.offerLast( pc );
+      }
+    } catch ( SQLException e ) {
+      SLogging.getInst().log( "Error while opening pooled database connections!", LogLevel.ERROR );
+      SLogging.getInst().log( e );
+    }
+  }
+
+  /**
+   * Periodic maintenance: evict idle connections, refill to the minimum and report leaks
+   */
+  private void maintain() {
+    try {
+      long now = System.currentTimeMillis();
+
+      // Evict connections that have been idle for too long, never below the minimum
+      for( PooledConnection pc : idle ) {
+        if( total.get() <= minSize )
+          break;
+
+        if( now - pc.getLastUsed() > idleTimeout && idle.remove( pc ) )
+          discard( pc );
+      }
+
+      // Replace evicted or broken connections
+      fillUp();
+
+      // Report connections which are being held for too long, only once per borrow
+      if( leakThreshold <= 0 )
+        return;
+
+      for( PooledConnection pc : borrowed ) {
+        if( pc.isLeakReported() || now - pc.getBorrowedAt() < leakThreshold )
+          continue;
+
+        pc.setLeakReported( true );
+        SLogging.getInst().log( "Possible database connection leak, held for " + ( now - pc.getBorrowedAt() ) + "ms!", LogLevel.WARNING );
+
+        if( pc.getBorrowSite() != null )
+          SLogging.getInst().log( pc.getBorrowSite() );
+      }
+    } catch ( Exception e ) {
+      SLogging.getInst().log( "Error while maintaining the database connection pool!", LogLevel.ERROR );
+      SLogging.getInst().log( e );
+    }
+  }
+}
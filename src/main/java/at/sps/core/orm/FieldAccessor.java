@@ -0,0 +1,83 @@
+package at.sps.core.orm;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.List;
+
+public class FieldAccessor implements ColumnAccessor {
+
+  // Every handle is adapted to (Object)Object or (Object,Object)void, so calls can be exact
+  private static final MethodType GETTER_TYPE = MethodType.methodType( Object.class, Object.class );
+  private static final MethodType SETTER_TYPE = MethodType.methodType( void.class, Object.class, Object.class );
+
+  private final MethodHandle[] getters;
+  private final MethodHandle setter;
+
+  /**
+   * Compiled access to a (possibly nested) field, resolved once so reading and writing
+   * values doesn't need any further reflection lookups
+   * @param path Fields to walk from the model down to the target, like location -> x
+   * @throws IllegalAccessException Fields could not be made accessible
+   */
+  public FieldAccessor( List< Field > path ) throws IllegalAccessException {
+    MethodHandles.Lookup lookup = MethodHandles.lookup();
+
+    this.getters = new MethodHandle[ path.size() ];
+    for( int i = 0; i < path.size(); i++ ) {
+      Field f = path.get( i );
+      f.setAccessible( true );
+      getters[ i ] = lookup.unreflectGetter( f ).asType( GETTER_TYPE );
+    }
+
+    // Final fields can't be written, those only support reading
+    Field leaf = path.get( path.size() - 1 );
+    this.setter = Modifier.isFinal( leaf.getModifiers() ) ? null : lookup.unreflectSetter( leaf ).asType( SETTER_TYPE );
+  }
+
+  /**
+   * Get the target's value within an object
+   * @param holder Model to read from
+   * @return Value of the target, null if any holder on the path is null
+   */
+  @Override
+  public Object get( Object holder ) {
+    try {
+      Object curr = holder;
+      for( int i = 0; i < getters.length && curr != null; i++ )
+        curr = getters[ i ].invokeExact( curr );
+      return curr;
+    } catch ( Throwable t ) {
+      throw new IllegalStateException( "Could not read a mapped field!", t );
+    }
+  }
+
+  /**
+   * Set the target's value within an object
+   * @param holder Model to write into
+   * @param value Value to set, has to match the target's type
+   */
+  @Override
+  public void set( Object holder, Object value ) {
+    if( setter == null )
+      throw new IllegalStateException( "Cannot write a final mapped field!" );
+
+    try {
+      // Walk down to the target's direct holder
+      Object curr = holder;
+      for( int i = 0; i < getters.length - 1 && curr != null; i++ )
+        curr = getters[ i ].invokeExact( curr );
+
+      if( curr == null )
+        throw new IllegalStateException( "Holder of a mapped field is null!" );
+
+      setter.invokeExact( curr, value );
+    } catch ( RuntimeException e ) {
+      throw e;
+    } catch ( Throwable t ) {
+      throw new IllegalStateException( "Could not write a mapped field!", t );
+    }
+  }
+}
@@ -0,0 +1,33 @@
+package at.sps.core.orm;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Repeatable;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Declares a secondary index, either on a field for that single column or
+ * on the model for a composite index over the listed columns
+ */
+@Retention( RetentionPolicy.RUNTIME )
+@Target( { ElementType.TYPE, ElementType.FIELD } )
+@Repeatable( Indexes.class )
+public @interface Index {
+
+  /**
+   * Name of the index, keep empty to derive it from the table and columns
+   */
+  String name() default "";
+
+  /**
+   * Column names in index order, keep empty on a field to index just that field's column
+   */
+  String[] columns() default {};
+
+  /**
+   * Prefix lengths, in the same order as columns, required for TEXT and BLOB columns, 0 indexes the whole column
+   */
+  int[] prefixes() default {};
+
+}
@@ -0,0 +1,20 @@
+package at.sps.core.orm;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Container for multiple {@link Index} declarations on the same element
+ */
+@Retention( RetentionPolicy.RUNTIME )
+@Target( { ElementType.TYPE, ElementType.FIELD } )
+public @interface Indexes {
+
+  /**
+   * All declared indexes
+   */
+  Index[] value();
+
+}
@@ -0,0 +1,82 @@
+package at.sps.core.orm;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class Instantiator< T > {
+
+  // Handles are adapted to ()Object, so calls can be exact
+  private static final MethodType FACTORY_TYPE = MethodType.methodType( Object.class );
+
+  // Resolved constructors by type, shared between all mappers
+  private static final Map< Class< ? >, MethodHandle > constructors = new ConcurrentHashMap<>();
+
+  private final Class< T > type;
+  private final MethodHandle constructor;
+
+  /**
+   * Creates empty instances of a type for filling in it's fields afterwards. A default
+   * constructor is used if declared, otherwise the constructor taking the most parameters
+   * gets called with default values (null, zero, false), since objects like locations only
+   * offer parameterized ones. Either way, constructors and initializers do run
+   * @param type Type to instantiate
+   */
+  public Instantiator( Class< T > type ) {
+    this.type = type;
+    this.constructor = constructors.computeIfAbsent( type, Instantiator::resolve );
+  }
+
+  /**
+   * Create a new empty instance
+   * @return Instance with all fields as set by the used constructor
+   */
+  public T newInstance() {
+    try {
+      return type.cast( constructor.invokeExact() );
+    } catch ( Throwable t ) {
+      throw new IllegalStateException( "Could not instantiate " + type.getSimpleName() + "!", t );
+    }
+  }
+
+  /**
+   * Resolve the constructor of a type and bind default values to all of it's parameters
+   * @param type Type to resolve for
+   * @return Handle taking no arguments
+   */
+  private static MethodHandle resolve( Class< ? > type ) {
+    // Prefer the default constructor, otherwise take the widest one
+    Constructor< ? > target = null;
+    for( Constructor< ? > c : type.getDeclaredConstructors() ) {
+      if( c.getParameterCount() == 0 ) {
+        target = c;
+        break;
+      }
+
+      if( target == null || c.getParameterCount() > target.getParameterCount() )
+        target = c;
+    }
+
+    if( target == null )
+      throw new IllegalStateException( "There is no constructor to instantiate " + type.getSimpleName() + " with!" );
+
+    try {
+      target.setAccessible( true );
+      MethodHandle handle = MethodHandles.lookup().unreflectConstructor( target );
+
+      // Default values of the parameter types, one element arrays start out with them
+      Class< ? >[] params = target.getParameterTypes();
+      Object[] defaults = new Object[ params.length ];
+      for( int i = 0; i < params.length; i++ )
+        defaults[ i ] = Array.get( Array.newInstance( params[ i ], 1 ), 0 );
+
+      return MethodHandles.insertArguments( handle, 0, defaults ).asType( FACTORY_TYPE );
+    } catch ( IllegalAccessException e ) {
+      throw new IllegalStateException( "Could not access the constructor of " + type.getSimpleName() + "!", e );
+    }
+  }
+}
@@ -1,6 +1,8 @@
 package at.sps.core.orm;
 
+import lombok.AccessLevel;
 import lombok.Getter;
+import lombok.Setter;
 
 /**
  * Every mappable model must have an ID, this forces them, since a
@@ -11,4 +13,8 @@ public class MappableModel {
   @Getter
   private int ID;
 
+  // Values of all data columns as last read or written, to find the changed ones, null if unknown
+  @Getter( AccessLevel.PACKAGE ) @Setter( AccessLevel.PACKAGE )
+  private Object[] snapshot;
+
 }
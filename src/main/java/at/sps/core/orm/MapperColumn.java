@@ -31,4 +31,9 @@ public @interface MapperColumn {
    * Whether or not this field is nullable
    */
   boolean nullable() default false;
+
+  /**
+   * SQL datatype of the column, keep empty to derive it from the field's type
+   */
+  String type() default "";
 }
@@ -1,44 +1,98 @@
 package at.sps.core.orm;
 
+import at.sps.core.conf.Settings;
 import at.sps.core.utils.LogLevel;
 import at.sps.core.utils.SLogging;
 import lombok.Getter;
 
-import java.sql.Connection;
-import java.sql.DriverManager;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
+import javax.sql.rowset.CachedRowSet;
+import javax.sql.rowset.RowSetFactory;
+import javax.sql.rowset.RowSetProvider;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class MariaDB {
 
   @Getter
-  private Connection conn;
-  private final String username, password, database;
+  private ConnectionPool pool;
+  private RowSetFactory rowSets;
+  private ThreadPoolExecutor workers;
+  private ScheduledExecutorService flusher;
+  private final List< ModelMapper< ? > > writeBehind;
+
+  // Filtering statements which have been run through EXPLAIN already
+  private final Set< String > explained;
+  private final String host, username, password, database;
+  private final int port;
 
   /**
    * A new MySQL / MariaDB connection instance
+   * @param host Hostname of the database server
+   * @param port Port of the database server
    * @param username Username for auth
    * @param password Password for auth
+   * @param database Name of the database to use
    */
-  public MariaDB( String username, String password, String database ) {
+  public MariaDB( String host, int port, String username, String password, String database ) {
+    this.host = host;
+    this.port = port;
     this.username = username;
     this.password = password;
     this.database = database;
+    this.writeBehind = new CopyOnWriteArrayList<>();
+    this.explained = ConcurrentHashMap.newKeySet();
   }
 
   /**
-   * Establish a connection to the database
+   * Establish the connection pool to the database, sized by the settings
    */
   public void connect() {
     try {
-      // Load driver and build conn-string
+      // Load driver and build conn-string, old alias behaviour makes column labels (AS x) survive result caching,
+      // server side statements make the per connection statement cache save the parsing on the server,
+      // rewritten batches turn batched inserts into multi-row VALUES lists, cursor fetching lets
+      // streams with a positive fetch size read in chunks (statements without a fetch size are unaffected)
       Class.forName( "com.mysql.jdbc.Driver" );
-      String url = "jdbc:mysql://localhost:3306/" + this.database +
-              "?characterEncoding=utf8&useUnicode=true&useLegacyDatetimeCode=false&serverTimezone=UTC";
+      String url = "jdbc:mysql://" + this.host + ":" + this.port + "/" + this.database +
+              "?characterEncoding=utf8&useUnicode=true&useLegacyDatetimeCode=false&serverTimezone=UTC" +
+              "&useOldAliasMetadataBehavior=true&useServerPrepStmts=true&rewriteBatchedStatements=true" +
+              "&useCursorFetch=true";
+
+      // Open pool
+      this.rowSets = RowSetProvider.newFactory();
+      this.pool = new ConnectionPool(
+        url, this.username, this.password,
+        Settings.DB_POOL_MIN_SIZE.asInt(), Settings.DB_POOL_MAX_SIZE.asInt(),
+        Settings.DB_POOL_IDLE_TIMEOUT_MS.asLong(), Settings.DB_POOL_BORROW_TIMEOUT_MS.asLong(),
+        Settings.DB_POOL_VALIDATION_TIMEOUT_S.asInt(), Settings.DB_POOL_LEAK_THRESHOLD_MS.asLong(),
+        Settings.DB_POOL_LEAK_TRACE.asBoolean(), Settings.DB_POOL_MAINTENANCE_INTERVAL_MS.asLong(),
+        Settings.DB_STATEMENT_CACHE_SIZE.asInt()
+      );
+      // Bounded worker pool for async queries, a full queue rejects the task, see async()
+      AtomicInteger workerId = new AtomicInteger();
+      this.workers = new ThreadPoolExecutor(
+        Settings.DB_ASYNC_WORKERS.asInt(), Settings.DB_ASYNC_WORKERS.asInt(), 0L, TimeUnit.MILLISECONDS,
+        new ArrayBlockingQueue<>( Settings.DB_ASYNC_QUEUE_SIZE.asInt() ),
+        r -> new Thread( r, "SPS-DB-Worker-" + workerId.incrementAndGet() ),
+        new ThreadPoolExecutor.AbortPolicy()
+      );
+
+      // Write-behind buffers get flushed on their own daemon thread
+      long flushInterval = Settings.DB_WRITE_BEHIND_INTERVAL_MS.asLong();
+      this.flusher = Executors.newSingleThreadScheduledExecutor( r -> {
+        Thread t = new Thread( r, "SPS-DB-Flusher" );
+        t.setDaemon( true );
+        return t;
+      } );
+      this.flusher.scheduleWithFixedDelay( this::flushWriteBehind, flushInterval, flushInterval, TimeUnit.MILLISECONDS );
 
-      // Open connection
-      this.conn = DriverManager.getConnection( url, this.username, this.password );
-      SLogging.getInst().log( "Successfully connected to SQL-DB!", LogLevel.INFO );
+      SLogging.getInst().log( "Successfully connected to SQL-DB with " + pool.getSize() + " connections!", LogLevel.INFO );
     } catch ( Exception e ) {
       SLogging.getInst().log( "Error while connecting to SQL-DB!", LogLevel.ERROR );
       SLogging.getInst().log( e );
@@ -46,7 +100,8 @@ public class MariaDB {
   }
 
   /**
-   * Build all tables for the specified mappers if they don't yet exist
+   * Build all tables for the specified mappers if they don't yet exist, then
+   * prepare their hot statements on all pooled connections
    * @param mappers Array of mappers to request table creation from
    */
   public void buildTables( ModelMapper< ? >... mappers ) {
@@ -60,6 +115,40 @@ public class MariaDB {
         SLogging.getInst().log( e );
       }
     }
+
+    // Not connected
+    if( pool == null )
+      return;
+
+    // Tables exist now, so their hot statements can be prepared
+    for( ModelMapper< ? > mapper : mappers ) {
+      for( String query : mapper.getHotStatements() )
+        pool.addHotStatement( query );
+    }
+
+    pool.warmUp();
+  }
+
+  /**
+   * Register a mapper whose model is written behind, it's buffer gets flushed periodically
+   * @param mapper Mapper to flush
+   */
+  public void registerWriteBehind( ModelMapper< ? > mapper ) {
+    writeBehind.add( mapper );
+  }
+
+  /**
+   * Flush the buffered writes of all write-behind mappers right now
+   */
+  public void flushWriteBehind() {
+    for( ModelMapper< ? > mapper : writeBehind ) {
+      try {
+        mapper.flushPending();
+      } catch ( Exception e ) {
+        SLogging.getInst().log( "Error while flushing buffered writes!", LogLevel.ERROR );
+        SLogging.getInst().log( e );
+      }
+    }
   }
 
   /**
@@ -67,11 +156,28 @@ public class MariaDB {
    */
   public void disconnect() {
     try {
+      // Stop periodic flushing, a running flush may still complete
+      if( flusher != null ) {
+        flusher.shutdown();
+
+        if( !flusher.awaitTermination( 10, TimeUnit.SECONDS ) )
+          SLogging.getInst().log( "Buffered SQL-DB writes did not flush in time!", LogLevel.WARNING );
+      }
+
+      // Let queued async work finish before the connections go away
+      if( workers != null ) {
+        workers.shutdown();
+
+        if( !workers.awaitTermination( 10, TimeUnit.SECONDS ) )
+          SLogging.getInst().log( "Async SQL-DB tasks did not finish in time!", LogLevel.WARNING );
+      }
+
       // Not connected
-      if( conn == null || conn.isClosed() )
+      if( pool == null )
         return;
 
-      conn.close();
+      pool.close();
+      pool = null;
       SLogging.getInst().log( "Successfully disconnected from SQL-DB!", LogLevel.INFO );
     } catch ( Exception e ) {
       SLogging.getInst().log( "Error while disconnecting from SQL-DB!", LogLevel.ERROR );
@@ -80,21 +186,180 @@ public class MariaDB {
   }
 
   /**
-   * Create a prepared statement from a string query with it's data
+   * Run a function on a borrowed connection and return it afterwards. When the connection
+   * turns out to be broken, it gets discarded and the call is retried once on a fresh
+   * connection if that's safe to do
+   * @param func Function to execute
+   * @param retry Whether or not the call may be repeated, only for idempotent work
+   * @return Result of the function
+   */
+  public < R > R withConnection( ConnectionFunc< R > func, boolean retry ) throws SQLException {
+    if( pool == null )
+      throw new SQLException( "Not connected to the SQL-DB!" );
+
+    for( int attempt = 0; ; attempt++ ) {
+      PooledConnection pc = pool.borrow();
+      boolean broken = false;
+
+      try {
+        return func.call( pc );
+      } catch ( SQLException e ) {
+        broken = isConnectionError( e );
+
+        // Not a link failure or not allowed to retry, pass on
+        if( !broken || !retry || attempt > 0 )
+          throw e;
+
+        SLogging.getInst().log( "Lost a SQL-DB connection, retrying on a new one!", LogLevel.WARNING );
+      } finally {
+        pool.release( pc, broken );
+      }
+    }
+  }
+
+  /**
+   * Run a task on the database worker pool, use {@link at.sps.core.utils.SyncExecutor} to
+   * get back onto the main thread for working with the result
+   * @param task Task to execute, mostly mapper calls
+   * @return Future of the task's result, completes exceptionally if the task threw or
+   * the workers are too busy to accept it or not running, see {@link #isBusy(Throwable)}
+   */
+  public < R > CompletableFuture< R > async( Callable< R > task ) {
+    CompletableFuture< R > future = new CompletableFuture<>();
+    Runnable job = () -> {
+      try {
+        future.complete( task.call() );
+      } catch ( Exception e ) {
+        future.completeExceptionally( e );
+      }
+    };
+
+    // Not connected or already shut down, never run queries on the calling (main) thread
+    if( workers == null || workers.isShutdown() ) {
+      future.completeExceptionally( new RejectedExecutionException( "SQL-DB workers are not running!" ) );
+      return future;
+    }
+
+    // Queue is full, fail right away instead of blocking the calling (main) thread with the query
+    try {
+      workers.execute( job );
+    } catch ( RejectedExecutionException e ) {
+      future.completeExceptionally( e );
+    }
+
+    return future;
+  }
+
+  /**
+   * Check whether or not an async task failed because the workers were too busy to accept it,
+   * callers should tell the user to retry instead of reporting an internal error
+   * @param error Error of the failed future
+   * @return True if the task has been rejected, false otherwise
+   */
+  public static boolean isBusy( Throwable error ) {
+    Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    return cause instanceof RejectedExecutionException;
+  }
+
+  /**
+   * Check whether or not an exception has been caused by a broken connection (SQLState class 08)
+   * @param e Exception to check
+   * @return True if the link is broken, false otherwise
+   */
+  private boolean isConnectionError( SQLException e ) {
+    if( e instanceof SQLRecoverableException || e instanceof SQLNonTransientConnectionException )
+      return true;
+
+    return e.getSQLState() != null && e.getSQLState().startsWith( "08" );
+  }
+
+  /**
+   * Run a filtering statement through EXPLAIN once, the first time it's executed, in the background
+   * with the very same values, so every query of every mapper gets checked for full table scans.
+   * Meant for development only, enabled by DB_EXPLAIN_QUERIES
+   * @param query Query about to be executed
+   * @param data Data used for questionmarks
+   */
+  private void inspect( String query, Object[] data ) {
+    if( !Settings.DB_EXPLAIN_QUERIES.asBoolean() || workers == null || workers.isShutdown() )
+      return;
+
+    // Every query is only looked at once, skipped ones are remembered as well
+    if( !explained.add( query ) )
+      return;
+
+    // Only reads, updates and deletes with a filter can be helped by an index
+    String head = query.trim().toUpperCase();
+    if( !( head.startsWith( "SELECT" ) || head.startsWith( "UPDATE" ) || head.startsWith( "DELETE" ) ) || !head.contains( " WHERE " ) )
+      return;
+
+    Object[] values = data == null ? new Object[ 0 ] : data.clone();
+    async( () -> {
+      for( String table : explain( query, values ) )
+        SLogging.getInst().log( "Query scans table " + table + " without a usable index: " + query, LogLevel.WARNING );
+      return null;
+    } ).whenComplete( ( res, error ) -> {
+      if( error == null )
+        return;
+
+      // Retried on the next execution
+      explained.remove( query );
+      if( !isBusy( error ) ) {
+        SLogging.getInst().log( "Error while explaining a query!", LogLevel.ERROR );
+        SLogging.getInst().log( error instanceof Exception ? ( Exception ) error : new Exception( error ) );
+      }
+    } );
+  }
+
+  /**
+   * Find all tables a statement would scan entirely, without any index that could help
+   * @param query Query to explain
+   * @param data Data to use for questionmarks
+   * @return Names of the scanned tables (or their aliases)
+   */
+  private List< String > explain( String query, Object[] data ) throws SQLException {
+    // Not taken from the statement cache, this runs once per query
+    return withConnection( conn -> {
+      try ( PreparedStatement ps = conn.getConn().prepareStatement( "EXPLAIN " + query ) ) {
+        for( int i = 0; i < data.length; i++ )
+          ps.setObject( i + 1, data[ i ] );
+
+        List< String > scanned = new ArrayList<>();
+        try ( ResultSet rs = ps.executeQuery() ) {
+          while( rs.next() ) {
+            if( "ALL".equalsIgnoreCase( rs.getString( "type" ) ) && rs.getString( "possible_keys" ) == null )
+              scanned.add( rs.getString( "table" ) );
+          }
+        }
+        return scanned;
+      }
+    }, true );
+  }
+
+  /**
+   * Create a prepared statement from a string query with it's data, statements are taken from
+   * the connection's cache and have to be handed back using {@link PooledConnection#finish(String, PreparedStatement)}
+   * @param conn Connection to prepare on
    * @param query Query to insert
    * @param data Data to use for questionmarks
    * @return PreparedStatement on success, null otherwise
    */
-  private PreparedStatement prepareQuery( String query, Object... data ) throws Exception {
-    PreparedStatement ps = this.conn.prepareStatement( query );
+  private PreparedStatement prepareQuery( PooledConnection conn, String query, Object... data ) throws SQLException {
+    inspect( query, data );
+    PreparedStatement ps = conn.prepare( query );
 
-    // Set all questionmark's values in query
-    if( data != null ) {
-      int c = 1;
-      for ( Object curr : data ) {
-        ps.setObject( c, curr );
-        c++;
+    // Set all questionmark's values in query, hand the statement back if that fails
+    try {
+      if( data != null ) {
+        int c = 1;
+        for ( Object curr : data ) {
+          ps.setObject( c, curr );
+          c++;
+        }
       }
+    } catch ( SQLException | RuntimeException e ) {
+      conn.finish( query, ps );
+      throw e;
     }
 
     return ps;
@@ -107,19 +372,177 @@ public class MariaDB {
    * @return Number of affected rows
    */
   public int executeUpdate( String query, Object... data ) throws Exception {
-    PreparedStatement ps = prepareQuery( query, data );
-    assert ps != null;
-    return ps.executeUpdate();
+    return withConnection( conn -> executeUpdate( conn, query, data ), false );
   }
+
   /**
-   * Insert data from the database using a query and it's data
+   * Insert data into the database on an already borrowed connection, used within transactions
+   * @param conn Connection to execute on
    * @param query Query to insert
    * @param data Data to use for questionmarks
-   * @return True on success, false otherwise
+   * @return Number of affected rows
+   */
+  public int executeUpdate( PooledConnection conn, String query, Object... data ) throws SQLException {
+    PreparedStatement ps = prepareQuery( conn, query, data );
+
+    try {
+      return ps.executeUpdate();
+    } finally {
+      conn.finish( query, ps );
+    }
+  }
+
+  /**
+   * Execute a query once per row of data as a single JDBC batch on an already borrowed connection
+   * @param conn Connection to execute on
+   * @param query Query to execute
+   * @param rows Data to use for questionmarks, one array per execution
+   * @return Number of affected rows per execution, may be {@link Statement#SUCCESS_NO_INFO}
+   */
+  public int[] executeBatch( PooledConnection conn, String query, List< Object[] > rows ) throws SQLException {
+    if( !rows.isEmpty() )
+      inspect( query, rows.get( 0 ) );
+
+    PreparedStatement ps = conn.prepare( query );
+
+    try {
+      // Bind every row and queue it up
+      for( Object[] row : rows ) {
+        for( int i = 0; i < row.length; i++ )
+          ps.setObject( i + 1, row[ i ] );
+
+        ps.addBatch();
+      }
+
+      return ps.executeBatch();
+    } finally {
+      ps.clearBatch();
+      conn.finish( query, ps );
+    }
+  }
+
+  /**
+   * Run a function within a transaction, which gets committed if the function
+   * returns and rolled back if it throws
+   * @param func Function to execute
+   * @return Result of the function
+   */
+  public < R > R transaction( ConnectionFunc< R > func ) throws SQLException {
+    return withConnection( conn -> {
+      conn.getConn().setAutoCommit( false );
+
+      try {
+        R result = func.call( conn );
+        conn.getConn().commit();
+        return result;
+      } catch ( SQLException | RuntimeException e ) {
+        conn.getConn().rollback();
+        throw e;
+      } finally {
+        conn.getConn().setAutoCommit( true );
+      }
+    }, false );
+  }
+
+  /**
+   * Fetch data from the database and read it within a callback, the result set
+   * is closed and the connection returned as soon as the callback is done
+   * @param query Query to execute
+   * @param reader Callback to read the result set with
+   * @param data Data to use for questionmarks
+   * @return Value produced by the reader
+   */
+  public < R > R fetch( String query, ResultFunc< R > reader, Object... data ) throws Exception {
+    return withConnection( conn -> fetch( conn, query, reader, data ), true );
+  }
+
+  /**
+   * Fetch data from the database on an already borrowed connection, used while holding locks
+   * @param conn Connection to execute on
+   * @param query Query to execute
+   * @param reader Callback to read the result set with
+   * @param data Data to use for questionmarks
+   * @return Value produced by the reader
+   */
+  public < R > R fetch( PooledConnection conn, String query, ResultFunc< R > reader, Object... data ) throws SQLException {
+    PreparedStatement ps = prepareQuery( conn, query, data );
+
+    try ( ResultSet rs = ps.executeQuery() ) {
+      return reader.call( rs );
+    } finally {
+      conn.finish( query, ps );
+    }
+  }
+
+  /**
+   * Insert data from the database using a query and it's data, the result is copied and
+   * detached from the connection, prefer {@link #fetch(String, ResultFunc, Object...)}
+   * @param query Query to insert
+   * @param data Data to use for questionmarks
+   * @return Cached result rows
    */
   public ResultSet fetchResult( String query, Object... data ) throws Exception {
-    PreparedStatement ps = prepareQuery( query, data );
-    assert ps != null;
-    return ps.executeQuery();
+    return fetch( query, rs -> {
+      CachedRowSet crs = rowSets.createCachedRowSet();
+      crs.populate( rs );
+      return crs;
+    }, data );
+  }
+
+  /**
+   * Stream rows from the database one by one instead of loading the whole result, using
+   * the fetch size from the settings
+   * @param query Query to execute
+   * @param reader Function to map the current row with
+   * @param data Data to use for questionmarks
+   * @return Stream of mapped rows, see {@link #stream(String, int, ResultFunc, Object...)}
+   */
+  public < R > Stream< R > stream( String query, ResultFunc< R > reader, Object... data ) throws SQLException {
+    return stream( query, Settings.DB_STREAM_FETCH_SIZE.asInt(), reader, data );
+  }
+
+  /**
+   * Stream rows from the database one by one instead of loading the whole result. The stream
+   * holds on to a connection of it's own until it has been consumed entirely or closed, so
+   * always use it within try-with-resources. Statements are not cached, since streamed
+   * result sets block their statement until they've been read up to the end
+   * @param query Query to execute
+   * @param fetchSize Number of rows to fetch per round trip, 0 or less streams row by row
+   * @param reader Function to map the current row with, must not move the cursor
+   * @param data Data to use for questionmarks
+   * @return Stream of mapped rows
+   */
+  public < R > Stream< R > stream( String query, int fetchSize, ResultFunc< R > reader, Object... data ) throws SQLException {
+    if( pool == null )
+      throw new SQLException( "Not connected to the SQL-DB!" );
+
+    inspect( query, data );
+    PooledConnection conn = pool.borrow();
+    PreparedStatement ps = null;
+
+    try {
+      // Forward only and read only is a requirement of the driver for streaming
+      ps = conn.getConn().prepareStatement( query, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY );
+      ps.setFetchSize( fetchSize > 0 ? fetchSize : Integer.MIN_VALUE );
+
+      // Set all questionmark's values in query
+      if( data != null ) {
+        for( int i = 0; i < data.length; i++ )
+          ps.setObject( i + 1, data[ i ] );
+      }
+
+      RowCursor< R > cursor = new RowCursor<>( pool, conn, ps, ps.executeQuery(), reader, fetchSize <= 0 );
+      return StreamSupport.stream( cursor, false ).onClose( cursor::close );
+    } catch ( SQLException | RuntimeException e ) {
+      try {
+        if( ps != null )
+          ps.close();
+      } catch ( SQLException ignored ) {
+        // Statement is being thrown away anyways
+      }
+
+      pool.release( conn, e instanceof SQLException && isConnectionError( ( SQLException ) e ) );
+      throw e;
+    }
   }
 }
@@ -1,41 +1,207 @@
 package at.sps.core.orm;
 
+import at.sps.core.conf.Settings;
+import at.sps.core.orm.codecs.BooleanCodec;
+import at.sps.core.orm.codecs.UUIDCodec;
+import at.sps.core.orm.codecs.WorldCodec;
 import at.sps.core.utils.LogLevel;
+import at.sps.core.utils.Pair;
 import at.sps.core.utils.ParamFuncCB;
 import at.sps.core.utils.SLogging;
+import org.bukkit.World;
 
 import java.lang.reflect.Field;
 import java.lang.reflect.ParameterizedType;
+import java.sql.BatchUpdateException;
 import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
 import java.sql.SQLIntegrityConstraintViolationException;
+import java.sql.Savepoint;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
 
 public abstract class ModelMapper< T extends MappableModel > {
 
+  // Every model inherits the same ID field, resolve it's access once
+  private static final FieldAccessor ID_ACCESSOR = makeIdAccessor();
+
+  // Codecs applied to every column of these types, unless it specifies it's datatype
+  private static final Map< Class< ? >, ColumnCodec > DEFAULT_CODECS = new HashMap<>();
+  static {
+    DEFAULT_CODECS.put( UUID.class, new UUIDCodec() );
+    DEFAULT_CODECS.put( boolean.class, new BooleanCodec() );
+    DEFAULT_CODECS.put( Boolean.class, new BooleanCodec() );
+    DEFAULT_CODECS.put( World.class, WorldCodec.getInst() );
+  }
+
   protected final MariaDB database;
-  private final Map< Class< ? >, ParamFuncCB< Object, String > > writeTranslatorsC;
-  private final Map< String, ParamFuncCB< Object, String > > writeTranslatorsN;
   private LinkedList< ColInfo > tableFields;
+  private final Map< String, ColInfo > columnsByName;
+
+  // Creation of empty models, and of every nested object the columns of a model reach into
+  private final Instantiator< T > factory;
+  private final List< Pair< FieldAccessor, Instantiator< ? > > > holders;
+
+  // Schema generated at build time, null if the model is only known by reflection
+  private ModelSchema< T > schema;
+
+  // Column order and statements, compiled once per model
+  private ColInfo[] columns, dataColumns, keyColumns;
+  private String createQuery, insertQuery, upsertQuery, deleteQuery, deleteClause, keyQuery, selectAllQuery;
+
+  // Secondary indexes as declared, and compiled by name with their column list
+  private final List< SchemaIndex > declaredIndexes;
+  private final Map< String, String > indexes;
+
+  // Buffered updates of write-behind models by their key values, with the time they first got dirty
+  private boolean writeBehind;
+  private final Map< List< Object >, Pair< T, Long > > pending;
+  private final AtomicBoolean flushQueued;
+
+  // Key lookups currently running, by their matching identity, so concurrent ones share a query
+  private final Map< List< Object >, CompletableFuture< T > > inflight;
+
+  // Partial updates by the set of data columns they write
+  private final Map< BitSet, String > partialQueries;
+
+  // Multi key lookups by their number of keys, always a power of two to keep the statement count low
+  private final Map< Integer, String > keysQueries;
 
   /**
    * Create a new model mapper, the base construct of every mapper used. Delete is being
-   * performed completely on an automatic basis, write may need the help of write translators.
-   * Read can get too complicated and is thus forced to be implemented by the model itself.
+   * performed completely on an automatic basis, writing and reading convert values through the
+   * codecs and converters resolved per column, so mappers only register those for special types.
    * @param database Database instance for queries
    */
   public ModelMapper( MariaDB database ) {
     this.database = database;
-    this.writeTranslatorsC = new HashMap<>();
-    this.writeTranslatorsN = new HashMap<>();
-
-    // Fetch a list of ColInfo objects for mapping later on, used multiple times
+    this.factory = new Instantiator<>( getModelClass() );
+    this.holders = new ArrayList<>();
+    this.pending = new ConcurrentHashMap<>();
+    this.inflight = new ConcurrentHashMap<>();
+    this.keysQueries = new ConcurrentHashMap<>();
+    this.partialQueries = new ConcurrentHashMap<>();
+    this.declaredIndexes = new ArrayList<>();
+    this.indexes = new LinkedHashMap<>();
+    this.columnsByName = new HashMap<>();
+    this.flushQueued = new AtomicBoolean();
+
+    // Fetch a list of ColInfo objects for mapping later on, used multiple times, the
+    // generated schema is preferred and reflection only used if the model lacks one
     try {
-      tableFields = findFields( getModelClass() );
+      schema = findSchema();
+      tableFields = schema != null ? readSchema( schema ) : findFields( getModelClass() );
+      compileQueries();
     } catch ( Exception e ) {
       SLogging.getInst().log( "Error while trying to flatten a model structure!", LogLevel.ERROR );
       SLogging.getInst().log( e );
     }
+
+    // Write-behind needs keys to coalesce updates on
+    if( getModelClass().getDeclaredAnnotation( WriteBehind.class ) != null ) {
+      if( keyColumns == null || keyColumns.length == 0 )
+        SLogging.getInst().log( "Write-behind model " + getModelClass().getSimpleName() + " has no keys, writing directly!", LogLevel.WARNING );
+      else {
+        writeBehind = true;
+        database.registerWriteBehind( this );
+      }
+    }
+  }
+
+  /**
+   * Compile the column order and all statements which only depend on the model's
+   * structure, so the hot paths only need to bind values. Datatypes are final only
+   * after the codecs applied, thus CREATE TABLE is compiled again when a mapper
+   * registers one of it's own
+   */
+  private void compileQueries() {
+    String name = getModelClass().getSimpleName();
+    createQuery = compileCreate( name );
+
+    for( ColInfo ci : tableFields )
+      columnsByName.put( ci.getName().toLowerCase(), ci );
+
+    // ID is auto gen, never insert or update that
+    columns = tableFields.toArray( new ColInfo[ 0 ] );
+    dataColumns = tableFields.stream().filter( ci -> !ci.getName().equalsIgnoreCase( "id" ) ).toArray( ColInfo[]::new );
+    keyColumns = tableFields.stream().filter( ColInfo::isUnique ).toArray( ColInfo[]::new );
+
+    // Column list, value placeholders and duplicate key updates
+    StringJoiner cols = new StringJoiner( ", " );
+    StringJoiner values = new StringJoiner( ", " );
+    StringJoiner updates = new StringJoiner( ", " );
+    for( ColInfo ci : dataColumns ) {
+      cols.add( "`" + ci.getName() + "`" );
+      values.add( "?" );
+      updates.add( "`" + ci.getName() + "` = VALUES(`" + ci.getName() + "`)" );
+    }
+
+    insertQuery = "INSERT INTO `" + name + "` (" + cols + ") VALUES (" + values + ")";
+    upsertQuery = insertQuery + " ON DUPLICATE KEY UPDATE " + updates;
+
+    // Key conditions, used for deletion (with primary key) and lookups
+    StringJoiner keyConds = new StringJoiner( " AND " );
+    for( ColInfo key : keyColumns )
+      keyConds.add( "`" + key.getName() + "` = ?" );
+
+    deleteClause = "(`ID` = ?" + ( keyColumns.length > 0 ? " AND " + keyConds : "" ) + ")";
+    deleteQuery = "DELETE FROM `" + name + "` WHERE " + deleteClause;
+    keyQuery = keyColumns.length > 0 ? "SELECT * FROM `" + name + "` WHERE " + keyConds : null;
+    selectAllQuery = "SELECT * FROM `" + name + "`";
+
+    compileIndexes( name );
+  }
+
+  /**
+   * Compile all declared secondary indexes
+   * @param name Name of the table
+   */
+  private void compileIndexes( String name ) {
+    for( SchemaIndex idx : declaredIndexes )
+      addIndex( name, idx );
+  }
+
+  /**
+   * Compile a single index declaration
+   * @param table Name of the table
+   * @param idx Declaration of the index
+   */
+  private void addIndex( String table, SchemaIndex idx ) {
+    String[] columns = idx.getColumns();
+    if( columns.length == 0 )
+      throw new IllegalStateException( "Index on " + table + " doesn't specify any columns!" );
+
+    StringJoiner cols = new StringJoiner( ", " );
+    for( int i = 0; i < columns.length; i++ ) {
+      ColInfo ci = findColumn( columns[ i ] );
+      if( ci == null )
+        throw new IllegalStateException( "Index on " + table + " targets unknown column " + columns[ i ] + "!" );
+
+      // Text and blobs can only be indexed by a prefix
+      int prefix = idx.getPrefixes().length > i ? idx.getPrefixes()[ i ] : 0;
+      String type = ci.getType().toUpperCase();
+      if( prefix <= 0 && ( type.contains( "TEXT" ) || type.contains( "BLOB" ) ) )
+        throw new IllegalStateException( "Index on " + table + " needs a prefix length for column " + ci.getName() + "!" );
+
+      cols.add( "`" + ci.getName() + "`" + ( prefix > 0 ? "(" + prefix + ")" : "" ) );
+    }
+
+    String name = idx.getName().equals( "" ) ? "IX_" + table + "_" + String.join( "_", columns ) : idx.getName();
+    indexes.put( name, cols.toString() );
+  }
+
+  /**
+   * Find a column by it's name
+   * @param name Name of the column, case insensitive
+   * @return Column if found, null otherwise
+   */
+  private ColInfo findColumn( String name ) {
+    return columnsByName.get( name.toLowerCase() );
   }
 
   /**
@@ -43,7 +209,151 @@ public abstract class ModelMapper< T extends MappableModel > {
    * @param rs ResultSet from an executed query
    * @return List of elements
    */
-  public abstract List< T > read( ResultSet rs );
+  public List< T > read( ResultSet rs ) {
+    try {
+      return readAll( rs );
+    } catch ( Exception e ) {
+      SLogging.getInst().log( "Error while mapping read " + getModelClass().getSimpleName() + "!", LogLevel.ERROR );
+      SLogging.getInst().log( e );
+      return new ArrayList<>();
+    }
+  }
+
+  /**
+   * Read a list of T typed elements from DB, failing as a whole instead of returning what has
+   * been read so far, for callers which must not mistake a failure for an empty result
+   * @param rs ResultSet from an executed query
+   * @return List of elements
+   * @throws SQLException Error while reading or mapping a row
+   */
+  protected List< T > readAll( ResultSet rs ) throws SQLException {
+    List< T > buf = new ArrayList<>();
+
+    try {
+      // Resolve the column positions once, then loop result rows
+      int[] positions = resolvePositions( rs );
+      while( rs.next() )
+        buf.add( readRow( rs, positions ) );
+    } catch ( RuntimeException e ) {
+      throw new SQLException( "Error while mapping read " + getModelClass().getSimpleName() + "!", e );
+    }
+
+    return buf;
+  }
+
+  /**
+   * Read a list of T typed elements from DB, each paired with an additional value of it's
+   * row, like columns of joined tables or computed ones
+   * @param rs ResultSet from an executed query
+   * @param extra Reads the additional value from the current row, must not move the cursor
+   * @return List of elements with their additional values
+   */
+  protected < R > List< Pair< T, R > > readWith( ResultSet rs, ResultFunc< R > extra ) {
+    List< Pair< T, R > > buf = new ArrayList<>();
+
+    try {
+      int[] positions = resolvePositions( rs );
+      while( rs.next() )
+        buf.add( new Pair<>( readRow( rs, positions ), extra.call( rs ) ) );
+    } catch ( Exception e ) {
+      SLogging.getInst().log( "Error while mapping read " + getModelClass().getSimpleName() + "!", LogLevel.ERROR );
+      SLogging.getInst().log( e );
+    }
+
+    return buf;
+  }
+
+  /**
+   * Read a single T typed element from the current row, without moving the cursor
+   * @param rs ResultSet positioned on the row to read
+   * @return Element of this row
+   */
+  protected T readRow( ResultSet rs ) throws SQLException {
+    return readRow( rs, resolvePositions( rs ) );
+  }
+
+  /**
+   * Read a single T typed element from the current row, without moving the cursor
+   * @param rs ResultSet positioned on the row to read
+   * @param positions Positions of the columns within the result, see {@link #resolvePositions(ResultSet)}
+   * @return Element of this row
+   */
+  private T readRow( ResultSet rs, int[] positions ) throws SQLException {
+    T element = factory.newInstance();
+
+    // Nested objects need to exist before their fields can be filled
+    createHolders( element );
+
+    for( int i = 0; i < positions.length; i++ ) {
+      // Not part of the result, keep the default
+      if( positions[ i ] == 0 )
+        continue;
+
+      ColInfo ci = columns[ i ];
+      Object value = ci.getReader().read( rs, positions[ i ] );
+
+      // Primitives keep their default on null
+      if( value == null && ci.getFieldType().isPrimitive() )
+        continue;
+
+      ci.getAccessor().set( element, value );
+    }
+
+    markClean( element );
+    return element;
+  }
+
+  /**
+   * Resolve the positions of all columns within a result, so rows can be read by index
+   * @param rs Result to resolve in
+   * @return Position per column in order of the table's fields, 0 if not selected
+   */
+  private int[] resolvePositions( ResultSet rs ) throws SQLException {
+    ResultSetMetaData meta = rs.getMetaData();
+
+    // Joined results may repeat a name, the first one wins
+    Map< String, Integer > labels = new HashMap<>();
+    for( int i = meta.getColumnCount(); i > 0; i-- )
+      labels.put( meta.getColumnLabel( i ).toLowerCase(), i );
+
+    int[] positions = new int[ columns.length ];
+    for( int i = 0; i < positions.length; i++ )
+      positions[ i ] = labels.getOrDefault( columns[ i ].getName().toLowerCase(), 0 );
+
+    return positions;
+  }
+
+  /**
+   * Stream all elements of this model's table in constant memory, for bulk jobs
+   * like exports or migrations. Has to be closed, best using try-with-resources
+   * @return Stream of all elements
+   */
+  public Stream< T > streamAll() throws SQLException {
+    return stream( selectAllQuery );
+  }
+
+  /**
+   * Stream the elements of a query's result one by one, see {@link MariaDB#stream(String, ResultFunc, Object...)}
+   * @param query Query to execute
+   * @param data Data to use for questionmarks
+   * @return Stream of elements, has to be closed
+   */
+  protected Stream< T > stream( String query, Object... data ) throws SQLException {
+    // Positions are resolved on the first row, the cursor always stays on the same result
+    int[][] positions = new int[ 1 ][];
+    return database.stream( query, rs -> {
+      try {
+        if( positions[ 0 ] == null )
+          positions[ 0 ] = resolvePositions( rs );
+
+        return readRow( rs, positions[ 0 ] );
+      } catch ( SQLException e ) {
+        throw e;
+      } catch ( Exception e ) {
+        throw new SQLException( "Error while mapping a streamed " + getModelClass().getSimpleName() + "!", e );
+      }
+    }, data );
+  }
 
   /**
    * Writes a list of T typed elements into the database
@@ -56,108 +366,374 @@ public abstract class ModelMapper< T extends MappableModel > {
     if( element == null )
       return ActionResult.NO_DATA;
 
-    try {
-      // Create an array of the element's row values, -1 for primary key, it's auto-gen
-      Object[] data = new Object[ tableFields.size() - 1 ];
-
-      // Create list of questionmark placeholders for tablefields
-      String name = getModelClass().getSimpleName();
-      StringBuilder query = new StringBuilder( "INSERT INTO `" + name + "` (" );
+    // Updates of write-behind models only get buffered
+    if( writeBehind && update )
+      return buffer( element );
 
-      // Append col names and build values placeholders simultaneously
-      StringBuilder values = new StringBuilder( " VALUES (" );
-      int c = 0;
-      for( int i = 0; i < tableFields.size(); i++ ) {
-        ColInfo curr = tableFields.get( i );
+    try {
+      // Only bind the element's row values, the statement is precompiled
+      database.executeUpdate( update ? upsertQuery : insertQuery, bindWrite( element ) );
 
-        // ID is auto gen, never insert that
-        if( tableFields.get( i ).getName().equalsIgnoreCase( "id" ) )
-          continue;
+      // Known rows can be updated partially from now on
+      if( element.getID() != 0 )
+        markClean( element );
 
-        values.append( c == 0 ? "" : "," ).append( "?" ).append( c == tableFields.size() - 2 ? ")" : "" );
-        query.append( c == 0 ? "" : "," ).append( curr.getName() ).append( c == tableFields.size() - 2 ? ")" : "" );
+      return ActionResult.OK;
+    } catch ( SQLIntegrityConstraintViolationException e2 ) {
+      // When constraints get violated, it should always mean that it's a duplicate update or insert, since
+      // the only constraint auto-created is the key constraint
+      return ActionResult.ALREADY_EXISTENT;
+    } catch ( Exception e ) {
+      SLogging.getInst().log( "Error while writing a model to the SQL-DB!", LogLevel.ERROR );
+      SLogging.getInst().log( e );
+      return ActionResult.INTERNAL_ERROR;
+    }
+  }
 
-        // If the value couldn't be found, throw an exception, dev error
-        Object d = getFieldValue( element, curr.getTarget() );
-        assert d != null;
+  /**
+   * Update only the columns of an element which changed since it has been read or written,
+   * through a statement compiled once per set of columns. Elements with an unknown state
+   * (created by hand or not yet assigned an ID) and write-behind models are written as a whole
+   * @param element Element to update
+   * @return ActionResult with the exit state, OK without any query if nothing changed
+   */
+  public ActionResult writeChanges( T element ) {
+    // No data provided
+    if( element == null )
+      return ActionResult.NO_DATA;
 
-        // Append to data array
-        data[ c ] = tryTranslate( curr.getTarget(), d );
-        c++;
-      }
+    Object[] snapshot = element.getSnapshot();
+    if( snapshot == null || element.getID() == 0 || writeBehind )
+      return write( element, true );
 
-      // Append values placeholders
-      query.append( values.toString() );
+    // Collect the changed columns and their values
+    Object[] current = takeSnapshot( element );
+    BitSet dirty = new BitSet( dataColumns.length );
+    List< Object > data = new ArrayList<>();
+    for( int i = 0; i < dataColumns.length; i++ ) {
+      if( Objects.deepEquals( snapshot[ i ], current[ i ] ) )
+        continue;
 
-      // Only add the duplicate key update if desired
-      if( update ) {
-        query.append( " ON DUPLICATE KEY UPDATE " );
-        c = 0;
-        for( ColInfo ci : tableFields ) {
+      dirty.set( i );
+      data.add( encodeValue( dataColumns[ i ], dataColumns[ i ].getAccessor().get( element ) ) );
+    }
 
-          // Update doesn't update primary key
-          if( ci.getName().equalsIgnoreCase( "id" ) )
-            continue;
+    // Nothing to write
+    if( dirty.isEmpty() )
+      return ActionResult.OK;
 
-          // Append field update clause
-          query.append( c == 0 ? "" : ", " ).append( ci.getName() ).append( " = VALUES(" ).append( ci.getName() ).append( ")" );
-          c++;
-        }
-      }
+    try {
+      data.add( element.getID() );
+      if( database.executeUpdate( partialQuery( dirty ), data.toArray() ) == 0 )
+        return ActionResult.NON_EXISTENT;
 
-      database.executeUpdate( query.toString() + ";", data );
+      element.setSnapshot( current );
       return ActionResult.OK;
     } catch ( SQLIntegrityConstraintViolationException e2 ) {
-      // When constraints get violated, it should always mean that it's a duplicate update or insert, since
-      // the only constraint auto-created is the key constraint
+      // Changed keys collide with another row
       return ActionResult.ALREADY_EXISTENT;
     } catch ( Exception e ) {
-      SLogging.getInst().log( "Error while writing a model to the SQL-DB!", LogLevel.ERROR );
+      SLogging.getInst().log( "Error while writing the changes of a model to the SQL-DB!", LogLevel.ERROR );
       SLogging.getInst().log( e );
       return ActionResult.INTERNAL_ERROR;
     }
   }
 
   /**
-   * Try to translate an object for writing
-   * @param field Field that contains this, for name based translation
-   * @param input Object to translate
-   * @return Translated object if translator existent, input otherwise
+   * Async variant of {@link #writeChanges(MappableModel)}
+   * @param element Element to update
+   * @return Future of the ActionResult with the exit state
+   */
+  public CompletableFuture< ActionResult > writeChangesAsync( T element ) {
+    return async( () -> writeChanges( element ) );
+  }
+
+  /**
+   * Get the update of a set of data columns, compiled once per set
+   * @param dirty Indexes of the data columns to update
+   * @return Query updating these columns by the primary key
    */
-  private Object tryTranslate( Field field, Object input ) {
-    // Try to find the corresponding translator
-    for( Class< ? > key : writeTranslatorsC.keySet() ) {
-      if( !key.isAssignableFrom( input.getClass() ) )
+  private String partialQuery( BitSet dirty ) {
+    return partialQueries.computeIfAbsent( dirty, d -> {
+      StringJoiner sets = new StringJoiner( ", " );
+      for( int i = d.nextSetBit( 0 ); i >= 0; i = d.nextSetBit( i + 1 ) )
+        sets.add( "`" + dataColumns[ i ].getName() + "` = ?" );
+
+      return "UPDATE `" + getModelClass().getSimpleName() + "` SET " + sets + " WHERE `ID` = ?";
+    } );
+  }
+
+  /**
+   * Remember the current values of an element as it's stored state, so later changes can be
+   * written on their own by {@link #writeChanges(MappableModel)}
+   * @param element Element which matches it's row
+   */
+  protected void markClean( T element ) {
+    element.setSnapshot( takeSnapshot( element ) );
+  }
+
+  /**
+   * Take the values of all data columns, collections are copied since they may be modified in place
+   * @param element Element to take the values from
+   * @return Values in order of the data columns
+   */
+  private Object[] takeSnapshot( T element ) {
+    Object[] values = new Object[ dataColumns.length ];
+    for( int i = 0; i < dataColumns.length; i++ ) {
+      Object value = dataColumns[ i ].getAccessor().get( element );
+      values[ i ] = value instanceof Collection ? new ArrayList<>( ( Collection< ? > ) value ) : value;
+    }
+    return values;
+  }
+
+  /**
+   * Create a copy of an element which shares it's values and nested objects are rebuilt, the
+   * copy keeps the ID and stored state, so it can be changed and written on it's own
+   * @param element Element to copy
+   * @return Copy of the element
+   */
+  public T copyOf( T element ) {
+    T copy = factory.newInstance();
+    createHolders( copy );
+
+    for( ColInfo ci : columns ) {
+      Object value = ci.getAccessor().get( element );
+      if( value == null && ci.getFieldType().isPrimitive() )
         continue;
 
-      // Translate to string
-      return writeTranslatorsC.get( key ).call( input );
+      ci.getAccessor().set( copy, value );
+    }
+
+    copy.setSnapshot( element.getSnapshot() );
+    return copy;
+  }
+
+  /**
+   * Create the nested objects of an element, through the generated schema if there is one
+   * @param element Element to create them in
+   */
+  private void createHolders( T element ) {
+    if( schema != null ) {
+      schema.createHolders( element );
+      return;
+    }
+
+    for( Pair< FieldAccessor, Instantiator< ? > > holder : holders )
+      holder.getKey().set( element, holder.getValue().newInstance() );
+  }
+
+  /**
+   * Buffer an update of a write-behind model, replacing any pending update of the same key
+   * @param element Element to buffer
+   * @return Always OK, errors surface when flushing
+   */
+  private ActionResult buffer( T element ) {
+    long now = System.currentTimeMillis();
+
+    // Buffer a copy, the caller may keep changing the element while it waits for the flusher,
+    // keep the time it first got dirty, so the lag is measured from there
+    T copy = copyOf( element );
+    Pair< T, Long > entry = pending.compute( bindKey( copy ), ( k, prev ) -> new Pair<>( copy, prev == null ? now : prev.getValue() ) );
+
+    // Flusher is lagging behind, flush on a worker right away, or on the next buffered write if they're busy
+    if( now - entry.getValue() > Settings.DB_WRITE_BEHIND_MAX_LAG_MS.asLong() && flushQueued.compareAndSet( false, true ) ) {
+      async( () -> {
+        flushQueued.set( false );
+        flushPending();
+        return null;
+      } ).whenComplete( ( res, error ) -> {
+        if( error != null )
+          flushQueued.set( false );
+      } );
+    }
+
+    return ActionResult.OK;
+  }
+
+  /**
+   * Write all buffered updates of a write-behind model into the database, entries
+   * that got updated again in the meantime stay buffered for the next flush
+   */
+  public synchronized void flushPending() {
+    if( pending.isEmpty() )
+      return;
+
+    // Take a snapshot, writes may go on concurrently
+    List< List< Object > > keys = new ArrayList<>();
+    List< Pair< T, Long > > entries = new ArrayList<>();
+    for( Map.Entry< List< Object >, Pair< T, Long > > e : pending.entrySet() ) {
+      keys.add( e.getKey() );
+      entries.add( e.getValue() );
+    }
+
+    List< T > elements = new ArrayList<>();
+    for( Pair< T, Long > entry : entries )
+      elements.add( entry.getKey() );
+
+    // Only remove what has been written and not been replaced since, failures get retried
+    List< ActionResult > results = writeAll( elements, true );
+    for( int i = 0; i < results.size(); i++ ) {
+      if( results.get( i ) != ActionResult.INTERNAL_ERROR )
+        pending.remove( keys.get( i ), entries.get( i ) );
+    }
+  }
+
+  /**
+   * Drop buffered updates of elements which are about to be deleted
+   * @param elements Elements to drop
+   */
+  private void dropPending( Collection< T > elements ) {
+    if( !writeBehind || elements == null )
+      return;
+
+    for( T element : elements ) {
+      if( element != null )
+        pending.remove( bindKey( element ) );
     }
+  }
+
+  /**
+   * Writes a collection of T typed elements into the database using JDBC batches in chunks
+   * of {@link Settings#DB_BATCH_SIZE}, all within one transaction
+   * @param elements Elements to write or update
+   * @param update Whether or not to use the updating feature
+   * @return ActionResult per element, in iteration order
+   */
+  public List< ActionResult > writeAll( Collection< T > elements, boolean update ) {
+    String query = update ? upsertQuery : insertQuery;
+    return executeAll( elements, query, this::bindWrite, ( conn, row ) -> {
+      try {
+        database.executeUpdate( conn, query, row );
+        return ActionResult.OK;
+      } catch ( SQLIntegrityConstraintViolationException e ) {
+        // Only constraint is the key constraint, thus it's a duplicate
+        return ActionResult.ALREADY_EXISTENT;
+      }
+    } );
+  }
+
+  /**
+   * Async variant of {@link #writeAll(Collection, boolean)}
+   * @param elements Elements to write or update
+   * @param update Whether or not to use the updating feature
+   * @return Future of the ActionResult per element
+   */
+  public CompletableFuture< List< ActionResult > > writeAllAsync( Collection< T > elements, boolean update ) {
+    return async( () -> writeAll( elements, update ) );
+  }
+
+  /**
+   * Run a task on the database's worker pool, used for the async variants of mapper calls
+   * @param task Task to execute
+   * @return Future of the task's result
+   */
+  public < R > CompletableFuture< R > async( Callable< R > task ) {
+    return database.async( task );
+  }
 
-    // Try to find a field name based translator
-    String name = field.getName();
-    if( writeTranslatorsN.containsKey( name ) )
-      return writeTranslatorsN.get( name ).call( input );
+  /**
+   * Async variant of {@link #write(MappableModel, boolean)}
+   * @param element Element to write or update
+   * @param update Whether or not to use the updating feature
+   * @return Future of the ActionResult with the exit state
+   */
+  public CompletableFuture< ActionResult > writeAsync( T element, boolean update ) {
+    return async( () -> write( element, update ) );
+  }
+
+  /**
+   * Build the data for the precompiled insert or upsert statement
+   * @param element Element to bind
+   * @return Values of all data columns in order
+   */
+  private Object[] bindWrite( T element ) {
+    Object[] data = new Object[ dataColumns.length ];
+    for( int i = 0; i < dataColumns.length; i++ ) {
+      ColInfo curr = dataColumns[ i ];
+      data[ i ] = encodeValue( curr, curr.getAccessor().get( element ) );
+    }
+    return data;
+  }
+
+  /**
+   * Build the identity of an element by it's key values, as used for the key lookup. Values
+   * stay unencoded, since encoded ones (like byte arrays) may not compare by their content
+   * @param element Element to bind
+   * @return Values of all key columns in order
+   */
+  private List< Object > bindKey( T element ) {
+    Object[] data = new Object[ keyColumns.length ];
+    for( int i = 0; i < keyColumns.length; i++ )
+      data[ i ] = keyColumns[ i ].getAccessor().get( element );
+    return Arrays.asList( data );
+  }
+
+  /**
+   * Build the data for the precompiled delete statement
+   * @param element Element to bind
+   * @return Primary key, then the values of all key columns in order
+   */
+  private Object[] bindDelete( T element ) {
+    Object[] data = new Object[ keyColumns.length + 1 ];
+    data[ 0 ] = element.getID();
+    for( int i = 0; i < keyColumns.length; i++ ) {
+      ColInfo key = keyColumns[ i ];
+      data[ i + 1 ] = encodeValue( key, key.getAccessor().get( element ) );
+    }
+    return data;
+  }
+
+  /**
+   * Encode a value for binding it to a column, through the column's codec or converter
+   * @param column Column to bind to
+   * @param value Value to encode
+   * @return Encoded value, null stays null
+   */
+  private Object encodeValue( ColInfo column, Object value ) {
+    if( value == null || column.getWriter() == null )
+      return value;
+
+    return column.getWriter().call( value );
+  }
+
+  /**
+   * Encode a value for binding it to a column within a custom query
+   * @param column Name of the column, case insensitive
+   * @param value Value to encode
+   * @return Value the driver is able to bind
+   */
+  protected Object bindColumn( String column, Object value ) {
+    ColInfo ci = findColumn( column );
+    if( ci == null )
+      throw new IllegalArgumentException( "Unknown column " + column + "!" );
+
+    return encodeValue( ci, value );
+  }
+
+  /**
+   * Read a column of the current row within a custom query, converted like the mapped field
+   * @param rs Result set positioned on the row
+   * @param column Name of the column, case insensitive
+   * @return Value of the column
+   */
+  @SuppressWarnings( "unchecked" )
+  protected < V > V readColumn( ResultSet rs, String column ) throws SQLException {
+    ColInfo ci = findColumn( column );
+    if( ci == null )
+      return ( V ) rs.getObject( column );
 
-    // No translator found
-    return input;
+    return ( V ) ci.getReader().read( rs, rs.findColumn( column ) );
   }
 
   /**
-   * Bind the ID of a resultset to the created object using reflect, since
+   * Bind the ID of a resultset to the created object using the compiled accessor, since
    * the ID-field only offers a getter for integrity
    * @param object Object to bind ID to
    * @param rs ResultSet to get ID from
    */
   protected void bindID( T object, ResultSet rs ) {
     try {
-      // Get ID value from result and field from superclass
-      int id = rs.getInt( "ID" );
-      Field targetField = object.getClass().getSuperclass().getDeclaredField( "ID" );
-
-      // Bind value onto field
-      targetField.setAccessible( true );
-      targetField.set( object, id );
+      ID_ACCESSOR.set( object, rs.getInt( "ID" ) );
     } catch ( Exception e ) {
       SLogging.getInst().log( "Error while binding the ID on an object!", LogLevel.ERROR );
       SLogging.getInst().log( e );
@@ -165,41 +741,24 @@ public abstract class ModelMapper< T extends MappableModel > {
   }
 
   /**
-   * Get a fields value within an object, this searches recursively
-   * @param element Element to search in
-   * @param field Target field
-   * @return Value of field if found, null otherwise
+   * Bind a known ID to an object, for copies of already read objects
+   * @param object Object to bind ID to
+   * @param id ID to bind
    */
-  private Object getFieldValue( Object element, Field field ) {
-    try {
-      // Loop all fields from the holder and make them accessible
-      for( Field f : element.getClass().getDeclaredFields() ) {
-        f.setAccessible( true );
-
-        // Field found on current level
-        if( f.equals( field ) )
-          return f.get( element );
-
-        // Not annotated, ignore since recursions could go wild otherwise
-        if( !( f.getDeclaredAnnotation( MapperColumn.class ) != null || f.getDeclaredAnnotation( RebuilderColumns.class ) != null ) )
-          continue;
-
-        // Primitive, can't navigate into it
-        if( f.getType().isPrimitive() )
-          continue;
+  protected void bindID( T object, int id ) {
+    ID_ACCESSOR.set( object, id );
+  }
 
-        // Search on that element's level, return only if retrieved value isn't null
-        Object ret = getFieldValue( f.get( element ), field );
-        if( ret != null )
-          return ret;
-      }
+  /**
+   * Resolve the access to the ID field every model inherits
+   * @return Accessor of the ID field
+   */
+  private static FieldAccessor makeIdAccessor() {
+    try {
+      return new FieldAccessor( Collections.singletonList( MappableModel.class.getDeclaredField( "ID" ) ) );
     } catch ( Exception e ) {
-      SLogging.getInst().log( "Error while trying to get a field's value!", LogLevel.ERROR );
-      SLogging.getInst().log( e );
+      throw new ExceptionInInitializerError( e );
     }
-
-    // Nothing found
-    return null;
   }
 
   /**
@@ -212,48 +771,34 @@ public abstract class ModelMapper< T extends MappableModel > {
     if( elements == null || elements.size() == 0 )
       return ActionResult.NO_DATA;
 
-    try {
-      // Get name and unique fields only
-      Class< ? > modelClass = getModelClass();
-      String name = modelClass.getSimpleName();
-      List< ColInfo > keys = tableFields.stream().filter( ColInfo::isUnique ).collect( Collectors.toList() );
-
-      // Build query and corresponding data buffer
-      LinkedList< Object > data = new LinkedList<>();
-      StringBuilder query = new StringBuilder( "DELETE FROM `" + name + "` WHERE " );
+    // Buffered updates would bring deleted rows back
+    dropPending( elements );
 
-      // Loop elements to delete
+    try {
+      // Build the condition data, primary key then all key values per element
+      List< Object > data = new ArrayList<>();
       int added = 0;
-      for( int i = 0; i < elements.size(); i++ ) {
-        T currE = elements.get( i );
+      for( T currE : elements ) {
 
         // Don't delete null values, obviously...
         if( currE == null )
           continue;
 
-        // Append or clause for every element after the first
-        if( i != 0 )
-          query.append( "OR" );
-
-        // Append item's condition and parameters
-        query.append( "( `ID` = ?" );
-
-        // Append primary key, then all key values
-        data.add( currE.getID() );
-        for ( ColInfo key : keys ) {
-          query.append( " AND `" ).append( key.getName() ).append( "` = ?" );
-          data.add( tryTranslate( key.getTarget(), key.getTarget().get( currE ) ) );
-        }
+        data.addAll( Arrays.asList( bindDelete( currE ) ) );
 
         // Implemented deletion element
         added++;
       }
 
-      // Close query
-      query.append( ");" );
+      // Nothing to delete
+      if( added == 0 )
+        return ActionResult.NON_EXISTENT;
+
+      // Single elements use the precompiled statement, multiple ones chain the clause
+      String query = added == 1 ? deleteQuery : deleteQuery + String.join( "", Collections.nCopies( added - 1, " OR " + deleteClause ) );
 
       // If no rows were affected, data didn't exist, otherwise at least something got deleted
-      if( added == 0 || database.executeUpdate( query.toString(), data.toArray( new Object[ 0 ] ) ) == 0 )
+      if( database.executeUpdate( query, data.toArray() ) == 0 )
         return ActionResult.NON_EXISTENT;
 
       // Data has been deleted
@@ -265,86 +810,553 @@ public abstract class ModelMapper< T extends MappableModel > {
     }
   }
 
+  /**
+   * Delete a collection of T typed elements from the database using JDBC batches in chunks
+   * of {@link Settings#DB_BATCH_SIZE}, all within one transaction
+   * @param elements Elements to delete
+   * @return ActionResult per element, in iteration order
+   */
+  public List< ActionResult > deleteAll( Collection< T > elements ) {
+    dropPending( elements );
+    return executeAll( elements, deleteQuery, this::bindDelete, ( conn, row ) ->
+      database.executeUpdate( conn, deleteQuery, row ) == 0 ? ActionResult.NON_EXISTENT : ActionResult.OK
+    );
+  }
+
+  /**
+   * Async variant of {@link #deleteAll(Collection)}
+   * @param elements Elements to delete
+   * @return Future of the ActionResult per element
+   */
+  public CompletableFuture< List< ActionResult > > deleteAllAsync( Collection< T > elements ) {
+    return async( () -> deleteAll( elements ) );
+  }
+
+  /**
+   * Execute a precompiled statement for many elements in chunked batches within one transaction.
+   * When a chunk violates a constraint, it's rolled back to it's savepoint and repeated row by
+   * row, so every element gets it's own result
+   * @param elements Elements to execute for, nulls result in NO_DATA
+   * @param query Precompiled query
+   * @param binder Builds the statement's data from an element
+   * @param single Executes a single row on the fallback path
+   * @return ActionResult per element, in iteration order
+   */
+  private List< ActionResult > executeAll( Collection< T > elements, String query, ParamFuncCB< T, Object[] > binder, RowFunc single ) {
+    List< ActionResult > results = new ArrayList<>();
+    if( elements == null )
+      return results;
+
+    // Bind all elements up front, remember which result each row belongs to
+    List< Object[] > rows = new ArrayList<>();
+    List< Integer > targets = new ArrayList<>();
+    for( T element : elements ) {
+      results.add( ActionResult.NO_DATA );
+
+      if( element == null )
+        continue;
+
+      rows.add( binder.call( element ) );
+      targets.add( results.size() - 1 );
+    }
+
+    if( rows.size() == 0 )
+      return results;
+
+    try {
+      int chunkSize = Math.max( 1, Settings.DB_BATCH_SIZE.asInt() );
+      database.transaction( conn -> {
+        for( int start = 0; start < rows.size(); start += chunkSize ) {
+          List< Object[] > chunk = rows.subList( start, Math.min( rows.size(), start + chunkSize ) );
+          Savepoint sp = conn.getConn().setSavepoint();
+
+          try {
+            int[] counts = database.executeBatch( conn, query, chunk );
+
+            // No info means the batch got rewritten into one statement, which succeeded
+            for( int i = 0; i < chunk.size(); i++ )
+              results.set( targets.get( start + i ), counts[ i ] == 0 ? ActionResult.NON_EXISTENT : ActionResult.OK );
+
+            conn.getConn().releaseSavepoint( sp );
+          } catch ( BatchUpdateException e ) {
+            // Something else than a constraint failed, abort the whole transaction
+            if( e.getSQLState() == null || !e.getSQLState().startsWith( "23" ) )
+              throw e;
+
+            // Undo the partially applied chunk, then find out per row
+            conn.getConn().rollback( sp );
+            for( int i = 0; i < chunk.size(); i++ )
+              results.set( targets.get( start + i ), single.call( conn, chunk.get( i ) ) );
+          }
+        }
+
+        return null;
+      } );
+    } catch ( Exception e ) {
+      SLogging.getInst().log( "Error while batch executing models on the SQL-DB!", LogLevel.ERROR );
+      SLogging.getInst().log( e );
+
+      // Transaction got rolled back, nothing has been applied
+      for( Integer target : targets )
+        results.set( target, ActionResult.INTERNAL_ERROR );
+    }
+
+    return results;
+  }
+
+  /**
+   * Read a single element by it's key columns, using the precompiled lookup
+   * @param keyValues Values of all key columns, in the order of their declaration within the model
+   * @return Element if found, null otherwise
+   */
+  protected T readByKey( Object... keyValues ) {
+    if( keyQuery == null || keyValues.length != keyColumns.length ) {
+      SLogging.getInst().log( "Error while reading a model by it's keys from SQL-DB!", LogLevel.ERROR );
+      SLogging.getInst().log( new IllegalArgumentException( "Key values don't match the model's key columns!" ) );
+      return null;
+    }
+
+    // Shares running lookups of the same key, just like bulk lookups
+    List< Object > values = Arrays.asList( keyValues );
+    return readByKeys( Collections.singletonList( values ) ).get( matchKey( values ) );
+  }
+
+  /**
+   * Read multiple elements by their key columns at once, using as few IN queries as possible.
+   * Keys which are already being looked up by another caller share that lookup
+   * @param keys Key values, the value itself for models with a single key column, otherwise a
+   *             list of the values of all key columns in the order of their declaration
+   * @return Found elements by the key they have been requested with, missing ones are left out
+   */
+  @SuppressWarnings( "unchecked" )
+  public < K > Map< K, T > getByKeys( Collection< K > keys ) {
+    if( keyColumns.length == 0 )
+      throw new IllegalStateException( "Model " + getModelClass().getSimpleName() + " has no keys to look up!" );
+
+    // Map every key to the identity of it's values
+    Map< K, List< Object > > identities = new LinkedHashMap<>();
+    for( K key : keys ) {
+      List< Object > values = keyColumns.length == 1 ? Collections.singletonList( key ) : ( List< Object > ) key;
+      if( values.size() != keyColumns.length )
+        throw new IllegalArgumentException( "Key values don't match the model's key columns!" );
+
+      identities.put( key, values );
+    }
+
+    Map< List< Object >, T > found = readByKeys( identities.values() );
+    Map< K, T > result = new LinkedHashMap<>();
+    for( Map.Entry< K, List< Object > > entry : identities.entrySet() ) {
+      T element = found.get( matchKey( entry.getValue() ) );
+      if( element != null )
+        result.put( entry.getKey(), element );
+    }
+
+    return result;
+  }
+
+  /**
+   * Async variant of {@link #getByKeys(Collection)}
+   * @param keys Key values, see {@link #getByKeys(Collection)}
+   * @return Future of the found elements by their key
+   */
+  public < K > CompletableFuture< Map< K, T > > getByKeysAsync( Collection< K > keys ) {
+    return async( () -> getByKeys( keys ) );
+  }
+
+  /**
+   * Read multiple elements by the values of their key columns, see {@link #getByKeys(Collection)}
+   * @param keys Values of all key columns per element
+   * @return Found elements by their matching identity, see {@link #matchKey(List)}
+   */
+  private Map< List< Object >, T > readByKeys( Collection< List< Object > > keys ) {
+    Map< List< Object >, T > found = new HashMap<>();
+    Map< List< Object >, CompletableFuture< T > > waiting = new HashMap<>();
+    Map< List< Object >, CompletableFuture< T > > owned = new LinkedHashMap<>();
+    Map< List< Object >, List< Object > > ownedValues = new HashMap<>();
+
+    for( List< Object > values : keys ) {
+      List< Object > match = matchKey( values );
+      if( found.containsKey( match ) || waiting.containsKey( match ) || owned.containsKey( match ) )
+        continue;
+
+      // Buffered updates are newer than what's stored, hand out a copy just like a fresh read
+      Pair< T, Long > buffered = writeBehind ? pending.get( values ) : null;
+      if( buffered != null ) {
+        found.put( match, copyOf( buffered.getKey() ) );
+        continue;
+      }
+
+      // Join a running lookup, or announce this one
+      CompletableFuture< T > own = new CompletableFuture<>();
+      CompletableFuture< T > running = inflight.putIfAbsent( match, own );
+      if( running != null )
+        waiting.put( match, running );
+      else {
+        owned.put( match, own );
+        ownedValues.put( match, values );
+      }
+    }
+
+    try {
+      // Query in chunks, which are padded to the next power of two by repeating their last key
+      int chunkSize = Math.max( 1, Settings.DB_BATCH_SIZE.asInt() );
+      List< List< Object > > remaining = new ArrayList<>( ownedValues.values() );
+      for( int from = 0; from < remaining.size(); from += chunkSize ) {
+        List< List< Object > > chunk = remaining.subList( from, Math.min( from + chunkSize, remaining.size() ) );
+        int size = Integer.highestOneBit( chunk.size() );
+        size = size == chunk.size() ? size : size << 1;
+
+        Object[] data = new Object[ size * keyColumns.length ];
+        for( int i = 0; i < size; i++ ) {
+          List< Object > values = chunk.get( Math.min( i, chunk.size() - 1 ) );
+          for( int j = 0; j < keyColumns.length; j++ )
+            data[ i * keyColumns.length + j ] = encodeValue( keyColumns[ j ], values.get( j ) );
+        }
+
+        for( T element : database.fetch( keysQuery( size ), this::read, data ) )
+          found.put( matchKey( bindKey( element ) ), element );
+      }
+    } catch ( Exception e ) {
+      SLogging.getInst().log( "Error while reading models by their keys from SQL-DB!", LogLevel.ERROR );
+      SLogging.getInst().log( e );
+    } finally {
+      // Hand out the results to everyone sharing, missing ones complete as null
+      for( Map.Entry< List< Object >, CompletableFuture< T > > entry : owned.entrySet() ) {
+        inflight.remove( entry.getKey(), entry.getValue() );
+        entry.getValue().complete( found.get( entry.getKey() ) );
+      }
+    }
+
+    for( Map.Entry< List< Object >, CompletableFuture< T > > entry : waiting.entrySet() ) {
+      T element = entry.getValue().join();
+      if( element != null )
+        found.put( entry.getKey(), element );
+    }
+
+    return found;
+  }
+
+  /**
+   * Get the lookup of a number of keys, compiled once per number
+   * @param count Number of keys
+   * @return Query selecting all elements matching one of the keys
+   */
+  private String keysQuery( int count ) {
+    // The precompiled single lookup is the same
+    if( count == 1 )
+      return keyQuery;
+
+    return keysQueries.computeIfAbsent( count, c -> {
+      StringJoiner cols = new StringJoiner( ", ", "(", ")" );
+      StringJoiner marks = new StringJoiner( ", ", "(", ")" );
+      for( ColInfo key : keyColumns ) {
+        cols.add( "`" + key.getName() + "`" );
+        marks.add( "?" );
+      }
+
+      // A single key column is compared directly, multiple ones as row constructors
+      String lhs = keyColumns.length == 1 ? "`" + keyColumns[ 0 ].getName() + "`" : cols.toString();
+      String rhs = keyColumns.length == 1 ? "?" : marks.toString();
+      return "SELECT * FROM `" + getModelClass().getSimpleName() + "` WHERE " + lhs + " IN (" + String.join( ", ", Collections.nCopies( c, rhs ) ) + ")";
+    } );
+  }
+
+  /**
+   * Build the identity results are matched by, the database compares text case insensitively
+   * @param values Values of all key columns
+   * @return Identity to match with
+   */
+  private List< Object > matchKey( List< Object > values ) {
+    List< Object > match = new ArrayList<>( values.size() );
+    for( Object value : values )
+      match.add( value instanceof String ? ( ( String ) value ).toLowerCase() : value );
+    return match;
+  }
+
+  /**
+   * Async variant of {@link #delete(List)}
+   * @param elements Array of elements
+   * @return Future of the ActionResult with the exit state
+   */
+  public CompletableFuture< ActionResult > deleteAsync( List< T > elements ) {
+    return async( () -> delete( elements ) );
+  }
+
   /**
    * Gets called from the database object to build the table needed for
-   * this model, builds it automatically based on the annotated fields
+   * this model, the statement has been compiled from the annotated fields
    * @throws Exception Error on execution
    */
   public void buildTable() throws Exception {
-    // Get fields, model name and begin building query
+    // Model structure couldn't be flattened, error has been logged on construction
+    if( createQuery == null )
+      throw new IllegalStateException( "No table definition available for " + getModelClass().getSimpleName() + "!" );
+
+    // Codecs may need tables of their own
+    for( ColInfo ci : tableFields ) {
+      if( ci.getCodec() != null )
+        ci.getCodec().prepare( database );
+    }
+
+    database.executeUpdate( createQuery );
+
+    // Tables that already existed may still store columns the way they did before their codec
     String name = getModelClass().getSimpleName();
+    migrateColumns( name );
+
+    // Tables that already existed may lack indexes declared later on
+    Set< String > existing = database.fetch(
+      "SELECT DISTINCT `INDEX_NAME` FROM information_schema.`STATISTICS` WHERE `TABLE_SCHEMA` = DATABASE() AND `TABLE_NAME` = ?",
+      rs -> {
+        Set< String > names = new HashSet<>();
+        while( rs.next() )
+          names.add( rs.getString( 1 ).toLowerCase() );
+        return names;
+      }, name
+    );
+
+    for( Map.Entry< String, String > idx : indexes.entrySet() ) {
+      if( existing.contains( idx.getKey().toLowerCase() ) )
+        continue;
+
+      database.executeUpdate( "CREATE INDEX `" + idx.getKey() + "` ON `" + name + "` (" + idx.getValue() + ")" );
+      SLogging.getInst().log( "Created index " + idx.getKey() + " on " + name + "!", LogLevel.INFO );
+    }
+  }
+
+  /**
+   * Migrate all columns whose stored datatype differs from the one their codec dictates
+   * @param name Name of the table
+   * @throws Exception Error on execution, the table stays usable in it's previous state
+   */
+  private void migrateColumns( String name ) throws Exception {
+    // Current datatypes by lowercase column name
+    Map< String, String > stored = database.fetch(
+      "SELECT `COLUMN_NAME`, `DATA_TYPE` FROM information_schema.`COLUMNS` WHERE `TABLE_SCHEMA` = DATABASE() AND `TABLE_NAME` = ?",
+      rs -> {
+        Map< String, String > types = new HashMap<>();
+        while( rs.next() )
+          types.put( rs.getString( 1 ).toLowerCase(), rs.getString( 2 ).toLowerCase() );
+        return types;
+      }, name
+    );
+
+    for( ColInfo ci : tableFields ) {
+      if( ci.getCodec() == null )
+        continue;
+
+      // Compare the plain type, without length or attributes
+      String type = stored.get( ci.getName().toLowerCase() );
+      String wanted = ci.getType().toLowerCase().split( "[( ]" )[ 0 ];
+      if( type == null || type.equals( wanted ) )
+        continue;
+
+      migrateColumn( name, ci, stored.containsKey( ( ci.getName() + "_new" ).toLowerCase() ) );
+    }
+  }
+
+  /**
+   * Migrate a column to it's codec without locking the table for long: the converted values
+   * are filled into a shadow column in chunks along the primary key, which then replaces the
+   * column within one statement. A trigger clears the shadow value of every row written to
+   * in the meantime (like by other servers on the same database), those rows get converted
+   * again, the last time while the table is locked right before the swap. Indexes on the
+   * column get recreated afterwards
+   * @param name Name of the table
+   * @param ci Column to migrate
+   * @param resume Whether or not the shadow column is left over from an interrupted migration
+   * @throws Exception Error on execution, the original column stays untouched until the swap
+   */
+  private void migrateColumn( String name, ColInfo ci, boolean resume ) throws Exception {
+    String column = ci.getName(), shadow = ci.getName() + "_new", trigger = name + "_" + column + "_migration";
+    SLogging.getInst().log( "Migrating column " + column + " of " + name + " to " + ci.getType() + "!", LogLevel.INFO );
+
+    if( !resume )
+      database.executeUpdate( "ALTER TABLE `" + name + "` ADD COLUMN `" + shadow + "` " + ci.getType() + " NULL" );
+
+    // Track writes before converting anything, an interrupted migration may have installed it already
+    Integer triggers = database.fetch(
+      "SELECT COUNT(*) FROM information_schema.`TRIGGERS` WHERE `TRIGGER_SCHEMA` = DATABASE() AND `TRIGGER_NAME` = ?",
+      rs -> rs.next() ? rs.getInt( 1 ) : 0, trigger
+    );
+
+    if( triggers == 0 ) {
+      database.executeUpdate(
+        "CREATE TRIGGER `" + trigger + "` BEFORE UPDATE ON `" + name + "` FOR EACH ROW " +
+        "SET NEW.`" + shadow + "` = IF(NEW.`" + column + "` <=> OLD.`" + column + "`, NEW.`" + shadow + "`, NULL)"
+      );
+    }
+
+    ci.getCodec().prepareMigration( database, name, column );
+
+    // Rows which still lack their converted value, inserted rows don't know the shadow column either
+    String select = "SELECT `ID`, `" + column + "` FROM `" + name + "` WHERE `ID` > ? AND `" + shadow + "` IS NULL AND `" + column + "` IS NOT NULL ORDER BY `ID` LIMIT ?";
+    String update = "UPDATE `" + name + "` SET `" + shadow + "` = ? WHERE `ID` = ?";
+    int migrated = database.withConnection( conn -> convertRows( conn, ci, select, update ), false );
+
+    // Dropping a column would silently shrink the indexes it's part of, so drop those too
+    Set< String > affected = database.fetch(
+      "SELECT DISTINCT `INDEX_NAME` FROM information_schema.`STATISTICS` WHERE `TABLE_SCHEMA` = DATABASE() AND `TABLE_NAME` = ? AND `COLUMN_NAME` = ? AND `INDEX_NAME` <> 'PRIMARY'",
+      rs -> {
+        Set< String > names = new HashSet<>();
+        while( rs.next() )
+          names.add( rs.getString( 1 ) );
+        return names;
+      }, name, column
+    );
+
+    // Swap in one statement, the key constraint is added right back, other indexes get recreated by the caller
+    StringJoiner alter = new StringJoiner( ", ", "ALTER TABLE `" + name + "` ", "" );
+    for( String idx : affected )
+      alter.add( "DROP INDEX `" + idx + "`" );
+
+    alter.add( "DROP COLUMN `" + column + "`" );
+    alter.add( "CHANGE COLUMN `" + shadow + "` " + makeColumn( ci ) );
+
+    String keyConstraint = compileKeyConstraint( name );
+    if( keyConstraint != null && affected.stream().anyMatch( idx -> idx.equalsIgnoreCase( "UC_" + name ) ) )
+      alter.add( "ADD " + keyConstraint );
+
+    // Catch up with the rows written during the conversion, nobody may write until the swap is done
+    int caughtUp = database.withConnection( conn -> {
+      database.executeUpdate( conn, "LOCK TABLES `" + name + "` WRITE" );
+
+      try {
+        int rows = convertRows( conn, ci, select, update );
+        database.executeUpdate( conn, "DROP TRIGGER IF EXISTS `" + trigger + "`" );
+        database.executeUpdate( conn, alter.toString() );
+        return rows;
+      } finally {
+        database.executeUpdate( conn, "UNLOCK TABLES" );
+      }
+    }, false );
+
+    SLogging.getInst().log( "Migrated " + ( migrated + caughtUp ) + " rows of column " + column + " of " + name + "!", LogLevel.INFO );
+  }
+
+  /**
+   * Convert all rows of a column which lack their converted value, chunk by chunk along the
+   * primary key, rows added in the meantime have higher IDs and are caught by later chunks
+   * @param conn Connection to execute on
+   * @param ci Column to migrate
+   * @param select Query selecting the next chunk of unconverted rows
+   * @param update Query storing a converted value
+   * @return Number of converted rows
+   */
+  private int convertRows( PooledConnection conn, ColInfo ci, String select, String update ) throws SQLException {
+    int chunkSize = Math.max( 1, Settings.DB_BATCH_SIZE.asInt() ), last = 0, converted = 0;
+
+    while( true ) {
+      List< Object[] > rows = database.fetch( conn, select, rs -> {
+        List< Object[] > buf = new ArrayList<>();
+        while( rs.next() )
+          buf.add( new Object[] { ci.getCodec().migrate( rs, ci.getName() ), rs.getInt( "ID" ) } );
+        return buf;
+      }, last, chunkSize );
+
+      if( rows.isEmpty() )
+        return converted;
+
+      database.executeBatch( conn, update, rows );
+      last = ( int ) rows.get( rows.size() - 1 )[ 1 ];
+      converted += rows.size();
+    }
+  }
+
+  /**
+   * Compile the table creation statement based on the annotated fields
+   * @param name Name of the table
+   * @return Ready to use create statement
+   */
+  private String compileCreate( String name ) {
     StringBuilder query = new StringBuilder( "CREATE TABLE IF NOT EXISTS `" + name + "` (" );
 
     // Add primary key ID, since that'll be always present
     query.append( "`ID` INT(32) NOT NULL AUTO_INCREMENT, PRIMARY KEY(`ID`)" );
 
-    // Build key constraint simultaneously
-    List< String > colNames = new ArrayList<>();
-    StringBuilder keys = new StringBuilder( ", CONSTRAINT UC_" + name + " UNIQUE (" );
-    int keyC = 0;
-
     // Loop the table's fields
+    List< String > colNames = new ArrayList<>();
     for( ColInfo ci : tableFields ) {
 
       // Skip ID field, since that has been specified above in a more particular way
       if( ci.getName().equalsIgnoreCase( "id" ) )
         continue;
 
-      // Unique -> Add to key constraint
-      if( ci.isUnique() ) {
-        keys.append( keyC == 0 ? "" : "," ).append( ci.getName() );
-        keyC++;
-      }
-
       // Check for duplicate column names
       if( colNames.contains( ci.getName().toLowerCase() ) )
         throw new IllegalStateException( "Found duplicate column names! Beware that the struct gets flattened and names need to be unique!" );
 
       // Append signature
-      query.append( ", " ).append( makeColumn( ci.getTarget(), ci.getName(), ci.getLength(), ci.isNullable() ) );
+      query.append( ", " ).append( makeColumn( ci ) );
       colNames.add( ci.getName().toLowerCase() );
     }
 
     // Append key constrain if exists
-    if( keyC > 0 ) {
-      keys.append( ")" );
-      query.append( keys.toString() );
-    }
+    String keys = compileKeyConstraint( name );
+    if( keys != null )
+      query.append( ", " ).append( keys );
 
     // Close query
-    query.append( ");" );
+    return query.append( ");" ).toString();
+  }
 
-    // Execute the query
-    database.executeUpdate( query.toString() );
+  /**
+   * Compile the key constraint over all unique columns
+   * @param name Name of the table
+   * @return Constraint definition, null if the model has no keys
+   */
+  private String compileKeyConstraint( String name ) {
+    StringJoiner keys = new StringJoiner( ",", "CONSTRAINT UC_" + name + " UNIQUE (", ")" );
+    int keyC = 0;
+
+    for( ColInfo ci : tableFields ) {
+      if( ci.isUnique() && !ci.getName().equalsIgnoreCase( "id" ) ) {
+        keys.add( ci.getName() );
+        keyC++;
+      }
+    }
+
+    return keyC > 0 ? keys.toString() : null;
+  }
+
+  /**
+   * Get the flattened column metadata of this mapper's model, resolved once on construction
+   * @return Unmodifiable list of columns, ID first
+   */
+  public List< ColInfo > getColumns() {
+    return tableFields == null ? Collections.emptyList() : Collections.unmodifiableList( tableFields );
+  }
+
+  /**
+   * Get the queries this mapper runs most frequently, they get prepared
+   * on every pooled connection at startup
+   * @return List of queries, the key lookup by default
+   */
+  public List< String > getHotStatements() {
+    return keyQuery == null ? new ArrayList<>() : new ArrayList<>( Collections.singletonList( keyQuery ) );
   }
 
   /**
    * Get the class of the currently implemented model
    * @return Model's class
    */
-  protected Class< ? > getModelClass() {
+  @SuppressWarnings( "unchecked" )
+  protected Class< T > getModelClass() {
     // Get the model's class (the type which the extending class has passed in type args)
     ParameterizedType superType = ( ( ParameterizedType ) getClass().getGenericSuperclass() );
-    return ( Class< ? > ) superType.getActualTypeArguments()[ 0 ];
+    return ( Class< T > ) superType.getActualTypeArguments()[ 0 ];
   }
 
   /**
-   * Make a SQL table column signature from a field and some properties
-   * @param f Target field to fetch datatype from
-   * @param annoName Name from annotation, leave empty for automatic resolve
-   * @param len Length for the datatype, leave empty to set none
+   * Make a SQL table column signature from a column's properties
+   * @param ci Column to make the signature for
    * @return Ready to use column signature
    */
-  private String makeColumn( Field f, String annoName, String len, boolean nullable ) {
-    String cName = annoName.equals( "" ) ? f.getName() : annoName;
-    String length = len.equals( "" ) ? "" : "(" + len + ")";
-
-    // If it would be a varchar but no length has been specified, make it text (dynamic)
-    String type = getSQLDatatype( f );
-    type = len.equals( "" ) && type.equals( "VARCHAR" ) ? "TEXT" : type;
+  private String makeColumn( ColInfo ci ) {
+    String length = ci.getLength().equals( "" ) ? "" : "(" + ci.getLength() + ")";
 
     // Append new column with it's properties
-    return "`" + cName + "` " + type + length + ( nullable ? "" : " NOT" ) + " NULL";
+    return "`" + ci.getName() + "` " + ci.getType() + length + ( ci.isNullable() ? "" : " NOT" ) + " NULL";
   }
 
   /**
@@ -353,6 +1365,11 @@ public abstract class ModelMapper< T extends MappableModel > {
    * @return SQL datatype, VARCHAR is fallback
    */
   private String getSQLDatatype( Field target ) {
+    // Explicitly specified type wins
+    MapperColumn mc = target.getDeclaredAnnotation( MapperColumn.class );
+    if( mc != null && !mc.type().equals( "" ) )
+      return mc.type();
+
     Class< ? > t = target.getType();
 
     if( t == int.class || t == Integer.class )
@@ -379,23 +1396,96 @@ public abstract class ModelMapper< T extends MappableModel > {
    * @throws Exception Error during search
    */
   protected LinkedList< ColInfo > findFields( Class< ? > target ) throws Exception {
+    // Composite indexes are declared on the model
+    for( Index idx : target.getAnnotationsByType( Index.class ) )
+      declaredIndexes.add( new SchemaIndex( idx.name(), idx.columns(), idx.prefixes() ) );
+
     // Find all fields recursively
-    LinkedList< ColInfo > fields = findFieldsR( target, null );
+    LinkedList< ColInfo > fields = findFieldsR( target, null, new ArrayList<>() );
 
     // Add ID field, every model must inherit this
-    Field idF = target.getSuperclass().getDeclaredField( "ID" );
-    idF.setAccessible( true );
-    fields.addFirst( new ColInfo( idF.getName(), getSQLDatatype( idF ), "32", false, false, idF ) );
+    fields.addFirst( makeIdColumn() );
+    return fields;
+  }
+
+  /**
+   * Build the columns from the schema generated for the model at build time, no fields
+   * are looked up and values are read and written through the generated accessors
+   * @param schema Schema of the model
+   * @return List of column info objects
+   */
+  @SuppressWarnings( "unchecked" )
+  private LinkedList< ColInfo > readSchema( ModelSchema< T > schema ) {
+    LinkedList< ColInfo > fields = new LinkedList<>();
+    List< SchemaColumn > declared = schema.getColumns();
+
+    for( int i = 0; i < declared.size(); i++ ) {
+      SchemaColumn sc = declared.get( i );
+      int column = i;
+
+      ColumnAccessor accessor = new ColumnAccessor() {
+        @Override
+        public Object get( Object holder ) {
+          return schema.get( ( T ) holder, column );
+        }
 
+        @Override
+        public void set( Object holder, Object value ) {
+          schema.set( ( T ) holder, column, value );
+        }
+      };
+
+      // Explicitly specified types opt out of codecs
+      ColInfo ci = new ColInfo( sc.getName(), sc.getType(), sc.getLength(), sc.isKey(), sc.isNullable(), sc.getFieldName(), sc.getFieldType(), accessor );
+      if( sc.isCodecs() )
+        ci.applyCodec( DEFAULT_CODECS.get( sc.getFieldType() ) );
+
+      fields.add( ci );
+    }
+
+    declaredIndexes.addAll( schema.getIndexes() );
+
+    fields.addFirst( makeIdColumn() );
     return fields;
   }
 
+  /**
+   * Find the schema generated for the model at build time, named after the model with a Schema suffix
+   * @return Schema of the model, null if it has not been generated
+   */
+  @SuppressWarnings( "unchecked" )
+  private ModelSchema< T > findSchema() throws ReflectiveOperationException {
+    Class< T > model = getModelClass();
+
+    try {
+      Class< ? > generated = Class.forName( model.getName() + "Schema", true, model.getClassLoader() );
+      if( !ModelSchema.class.isAssignableFrom( generated ) )
+        return null;
+
+      return ( ModelSchema< T > ) generated.getConstructor().newInstance();
+    } catch ( ClassNotFoundException e ) {
+      // Built without the processor, the model gets scanned by reflection instead
+      return null;
+    }
+  }
+
+  /**
+   * Make the column of the ID every model inherits from {@link MappableModel}
+   * @return Column info of the ID
+   */
+  private ColInfo makeIdColumn() {
+    return new ColInfo( "ID", "INT", "32", false, false, "ID", int.class, ID_ACCESSOR );
+  }
+
   /**
    * Find all fields from the current model
    * @param target Class of the target to search fields in
+   * @param parent Annotation of the holding field, null on the model's level
+   * @param path Fields leading from the model to the target
    * @return List of fields
+   * @throws IllegalAccessException Field accessors could not be compiled
    */
-  private LinkedList< ColInfo > findFieldsR( Class< ? > target, RebuilderColumns parent ) {
+  private LinkedList< ColInfo > findFieldsR( Class< ? > target, RebuilderColumns parent, List< Field > path ) throws IllegalAccessException {
     // Create the array of fields, this class' id field + all from model
     LinkedList< ColInfo > fields = new LinkedList<>();
 
@@ -428,7 +1518,9 @@ public abstract class ModelMapper< T extends MappableModel > {
         type = cLen.equals( "" ) && type.equals( "VARCHAR" ) ? "TEXT" : type;
 
         // Append colinfo list
-        fields.set( j, new ColInfo( cName, type, cLen, cUniq, cNull, f ) );
+        ColInfo ci = new ColInfo( cName, type, cLen, cUniq, cNull, f.getName(), f.getType(), makeAccessor( path, f ) );
+        ci.applyCodec( DEFAULT_CODECS.get( f.getType() ) );
+        fields.set( j, ci );
         continue;
       }
 
@@ -442,7 +1534,10 @@ public abstract class ModelMapper< T extends MappableModel > {
 
       // Rebuilder column found, find fields recursively
       if( rc != null ) {
-        fields.addAll( findFieldsR( f.getType(), rc ) );
+        holders.add( new Pair<>( makeAccessor( path, f ), new Instantiator<>( f.getType() ) ) );
+        List< Field > subPath = new ArrayList<>( path );
+        subPath.add( f );
+        fields.addAll( findFieldsR( f.getType(), rc, subPath ) );
         continue;
       }
 
@@ -453,28 +1548,87 @@ public abstract class ModelMapper< T extends MappableModel > {
       String type = getSQLDatatype( f );
       type = mc.length().equals( "" ) && type.equals( "VARCHAR" ) ? "TEXT" : type;
 
-      // Append colinfo
-      fields.add( new ColInfo( cName, type, mc.length(), mc.key(), mc.nullable(), f ) );
+      // Append colinfo, explicitly specified types opt out of codecs
+      ColInfo ci = new ColInfo( cName, type, mc.length(), mc.key(), mc.nullable(), f.getName(), f.getType(), makeAccessor( path, f ) );
+      if( mc.type().equals( "" ) )
+        ci.applyCodec( DEFAULT_CODECS.get( f.getType() ) );
+
+      // Single indexes are declared on the field, unless they list their columns
+      for( Index idx : f.getAnnotationsByType( Index.class ) )
+        declaredIndexes.add( new SchemaIndex( idx.name(), idx.columns().length > 0 ? idx.columns() : new String[] { cName }, idx.prefixes() ) );
+
+      fields.add( ci );
     }
 
     return fields;
   }
 
   /**
-   * Register a data translator for writing this field to DB
-   * @param type Type to use this translator on
-   * @param func Function for I/O
+   * Compile the access to a field, reached by walking the path from the model
+   * @param path Fields leading from the model to the field's holder
+   * @param f Target field
+   * @return Compiled accessor
+   * @throws IllegalAccessException Field accessor could not be compiled
+   */
+  private FieldAccessor makeAccessor( List< Field > path, Field f ) throws IllegalAccessException {
+    List< Field > full = new ArrayList<>( path );
+    full.add( f );
+    return new FieldAccessor( full );
+  }
+
+  /**
+   * Register a codec for all columns of a type, replacing the default one
+   * @param type Type of the fields to use this codec on
+   * @param codec Codec for reading, writing and the datatype
    */
-  protected void registerTranslator( Class< ? > type, ParamFuncCB< Object, String > func ) {
-    this.writeTranslatorsC.put( type, func );
+  protected void registerCodec( Class< ? > type, ColumnCodec codec ) {
+    for( ColInfo ci : tableFields ) {
+      if( ci.getFieldType() == type )
+        ci.applyCodec( codec );
+    }
+
+    createQuery = compileCreate( getModelClass().getSimpleName() );
   }
 
   /**
-   * Register a data translator for writing this field to DB
-   * @param fieldname Name of the target field to translate
-   * @param func Function for I/O
+   * Register a codec for a single column, replacing the default one
+   * @param fieldname Name of the target field
+   * @param codec Codec for reading, writing and the datatype
    */
-  protected void registerTranslator( String fieldname, ParamFuncCB< Object, String > func ) {
-    this.writeTranslatorsN.put( fieldname, func );
+  protected void registerCodec( String fieldname, ColumnCodec codec ) {
+    for( ColInfo ci : tableFields ) {
+      if( ci.getFieldName().equals( fieldname ) )
+        ci.applyCodec( codec );
+    }
+
+    createQuery = compileCreate( getModelClass().getSimpleName() );
+  }
+
+  /**
+   * Register a converter for all columns of a type, which translates values in both directions
+   * while keeping the column's datatype. Writers may return any type the driver is able to bind,
+   * like strings or byte arrays
+   * @param type Type of the fields to use this converter on, subtypes included
+   * @param writer Conversion of a field's value for binding, null values never reach it
+   * @param reader Conversion of the column into the field's value, null to read as usual
+   */
+  protected void registerConverter( Class< ? > type, ParamFuncCB< Object, Object > writer, ColumnReader reader ) {
+    for( ColInfo ci : tableFields ) {
+      if( type.isAssignableFrom( ci.getFieldType() ) )
+        ci.applyConverter( writer, reader );
+    }
+  }
+
+  /**
+   * Register a converter for a single column, which translates values in both directions
+   * @param fieldname Name of the target field
+   * @param writer Conversion of a field's value for binding, null values never reach it
+   * @param reader Conversion of the column into the field's value, null to read as usual
+   */
+  protected void registerConverter( String fieldname, ParamFuncCB< Object, Object > writer, ColumnReader reader ) {
+    for( ColInfo ci : tableFields ) {
+      if( ci.getFieldName().equals( fieldname ) )
+        ci.applyConverter( writer, reader );
+    }
   }
 }
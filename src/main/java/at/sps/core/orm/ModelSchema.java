@@ -0,0 +1,41 @@
+package at.sps.core.orm;
+
+import java.util.List;
+
+public interface ModelSchema< T extends MappableModel > {
+
+  /**
+   * Get all columns of the model in order, flattened like the mapper expects them,
+   * without the ID every model inherits
+   * @return List of columns
+   */
+  List< SchemaColumn > getColumns();
+
+  /**
+   * Get all secondary indexes declared on the model or it's fields
+   * @return List of indexes
+   */
+  List< SchemaIndex > getIndexes();
+
+  /**
+   * Create all nested objects (like locations) the columns reach into
+   * @param model Model to create them in
+   */
+  void createHolders( T model );
+
+  /**
+   * Get a column's value within a model
+   * @param model Model to read from
+   * @param column Index of the column within {@link #getColumns()}
+   * @return Value of the column's field, null if it's holder is null
+   */
+  Object get( T model, int column );
+
+  /**
+   * Set a column's value within a model
+   * @param model Model to write into
+   * @param column Index of the column within {@link #getColumns()}
+   * @param value Value to set, has to match the field's type
+   */
+  void set( T model, int column, Object value );
+}
@@ -0,0 +1,152 @@
+package at.sps.core.orm;
+
+import at.sps.core.utils.LogLevel;
+import at.sps.core.utils.SLogging;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public class PooledConnection {
+
+  @Getter
+  private final Connection conn;
+
+  @Getter
+  private long lastUsed, borrowedAt;
+
+  @Getter
+  private Exception borrowSite;
+
+  @Getter @Setter
+  private boolean leakReported;
+
+  private final int cacheSize;
+  private final LinkedHashMap< String, PreparedStatement > statements;
+  private final Set< PreparedStatement > inUse;
+  private int warmedUp;
+
+  /**
+   * Wraps a physical connection owned by the {@link ConnectionPool}, keeps track
+   * of when it has been used and by whom it has been borrowed for leak detection.
+   * Prepared statements are cached per connection, least recently used ones get closed,
+   * or when they're still in use, as soon as they're handed back
+   * @param conn Physical connection to wrap
+   * @param cacheSize Max. number of cached statements, 0 disables caching
+   */
+  public PooledConnection( Connection conn, int cacheSize ) {
+    this.conn = conn;
+    this.lastUsed = System.currentTimeMillis();
+    this.cacheSize = cacheSize;
+    this.inUse = Collections.newSetFromMap( new IdentityHashMap<>() );
+
+    // Access ordered, so the eldest entry is always the least recently used statement
+    this.statements = new LinkedHashMap< String, PreparedStatement >( 16, 0.75F, true ) {
+      @Override
+      protected boolean removeEldestEntry( Map.Entry< String, PreparedStatement > eldest ) {
+        if( size() <= PooledConnection.this.cacheSize )
+          return false;
+
+        // Still executing (nested fetches), finish() closes it since it's no longer cached
+        if( !inUse.contains( eldest.getValue() ) )
+          closeStatement( eldest.getValue() );
+
+        return true;
+      }
+    };
+  }
+
+  /**
+   * Get a prepared statement for a query, re-uses the cached one if available
+   * @param query Query to prepare
+   * @return Prepared statement, has to be handed back through {@link #finish(String, PreparedStatement)}
+   * @throws SQLException Error on preparing
+   */
+  public PreparedStatement prepare( String query ) throws SQLException {
+    PreparedStatement ps = statements.get( query );
+    if( ps != null && !ps.isClosed() ) {
+      // The very same query is nested within itself, use a separate statement which gets closed afterwards
+      if( !inUse.add( ps ) )
+        return conn.prepareStatement( query );
+
+      return ps;
+    }
+
+    ps = conn.prepareStatement( query );
+    if( cacheSize > 0 ) {
+      inUse.add( ps );
+      statements.put( query, ps );
+    }
+
+    return ps;
+  }
+
+  /**
+   * Hand back a statement after use, closes it if it's not (or no longer) part of the cache
+   * @param query Query of the statement
+   * @param ps Statement to hand back
+   */
+  public void finish( String query, PreparedStatement ps ) {
+    inUse.remove( ps );
+    if( statements.get( query ) != ps )
+      closeStatement( ps );
+  }
+
+  /**
+   * Prepare all statements of the warm-up list this connection hasn't prepared yet,
+   * the list may only grow, so remembering the position is enough
+   * @param queries List of hot queries
+   */
+  void warmUp( List< String > queries ) {
+    if( cacheSize <= 0 )
+      return;
+
+    for( ; warmedUp < queries.size(); warmedUp++ ) {
+      try {
+        String query = queries.get( warmedUp );
+        finish( query, prepare( query ) );
+      } catch ( SQLException e ) {
+        SLogging.getInst().log( "Error while pre-preparing a statement!", LogLevel.ERROR );
+        SLogging.getInst().log( e );
+      }
+    }
+  }
+
+  /**
+   * Mark this connection as borrowed right now
+   * @param trackSite Whether or not to remember the borrowing call site
+   */
+  void markBorrowed( boolean trackSite ) {
+    this.borrowedAt = System.currentTimeMillis();
+    this.borrowSite = trackSite ? new Exception( "Connection has been borrowed here" ) : null;
+    this.leakReported = false;
+  }
+
+  /**
+   * Mark this connection as returned into the pool right now
+   */
+  void markReturned() {
+    this.lastUsed = System.currentTimeMillis();
+    this.borrowSite = null;
+  }
+
+  /**
+   * Close a statement, errors are ignored since it's not going to be used anymore
+   * @param ps Statement to close
+   */
+  private void closeStatement( PreparedStatement ps ) {
+    try {
+      ps.close();
+    } catch ( SQLException ignored ) {
+      // Statement is being thrown away anyways
+    }
+  }
+}
@@ -0,0 +1,15 @@
+package at.sps.core.orm;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+public interface ResultFunc< O > {
+
+  /**
+   * Read from a result set, which is only valid during this call
+   * @param rs Result set to read from
+   * @return Output value O
+   */
+  O call( ResultSet rs ) throws SQLException;
+
+}
@@ -0,0 +1,96 @@
+package at.sps.core.orm;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+
+public class RowCursor< R > extends Spliterators.AbstractSpliterator< R > implements AutoCloseable {
+
+  private final ConnectionPool pool;
+  private final PooledConnection conn;
+  private final PreparedStatement ps;
+  private final ResultSet rs;
+  private final ResultFunc< R > reader;
+  private final boolean rowByRow;
+  private boolean closed, exhausted;
+
+  /**
+   * Walks a streamed result set row by row, the connection stays borrowed until
+   * the cursor has been exhausted, failed or closed
+   * @param pool Pool to release the connection back into
+   * @param conn Connection the statement is running on
+   * @param ps Statement of the result set, closed along with it
+   * @param rs Streamed result set
+   * @param reader Function to map the current row, must not move the cursor
+   * @param rowByRow Whether or not the driver streams row by row instead of using a server side cursor
+   */
+  RowCursor( ConnectionPool pool, PooledConnection conn, PreparedStatement ps, ResultSet rs, ResultFunc< R > reader, boolean rowByRow ) {
+    super( Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL );
+    this.pool = pool;
+    this.conn = conn;
+    this.ps = ps;
+    this.rs = rs;
+    this.reader = reader;
+    this.rowByRow = rowByRow;
+  }
+
+  /**
+   * Map the next row, resources get released as soon as there are no more rows
+   * @param action Consumer of the mapped row
+   * @return True if a row has been consumed, false when exhausted
+   */
+  @Override
+  public synchronized boolean tryAdvance( Consumer< ? super R > action ) {
+    if( closed )
+      return false;
+
+    try {
+      if( !rs.next() ) {
+        exhausted = true;
+        close();
+        return false;
+      }
+
+      action.accept( reader.call( rs ) );
+      return true;
+    } catch ( SQLException e ) {
+      close();
+      throw new IllegalStateException( "Error while streaming rows from SQL-DB!", e );
+    } catch ( RuntimeException e ) {
+      close();
+      throw e;
+    }
+  }
+
+  /**
+   * Close the result set and it's statement and hand back the connection
+   */
+  @Override
+  public synchronized void close() {
+    if( closed )
+      return;
+
+    closed = true;
+
+    // Closing a cancelled row by row stream would make the driver read all remaining rows, drop the connection instead,
+    // a server side cursor just gets closed and the connection is fine to be used again
+    if( !exhausted && rowByRow ) {
+      pool.release( conn, true );
+      return;
+    }
+
+    boolean broken = false;
+    try {
+      rs.close();
+      ps.close();
+    } catch ( SQLException e ) {
+      // Statement state unknown, don't hand this connection out again
+      broken = true;
+    }
+
+    pool.release( conn, broken );
+  }
+}
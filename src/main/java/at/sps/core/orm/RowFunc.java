@@ -0,0 +1,15 @@
+package at.sps.core.orm;
+
+import java.sql.SQLException;
+
+public interface RowFunc {
+
+  /**
+   * Execute a single row's data on a borrowed connection
+   * @param conn Connection to execute on
+   * @param row Bound data of the row
+   * @return Result of this row
+   */
+  ActionResult call( PooledConnection conn, Object[] row ) throws SQLException;
+
+}
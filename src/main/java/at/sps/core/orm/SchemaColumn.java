@@ -0,0 +1,40 @@
+package at.sps.core.orm;
+
+import lombok.Getter;
+
+public class SchemaColumn {
+
+  @Getter
+  private final String name, type, length;
+
+  @Getter
+  private final boolean key, nullable, codecs;
+
+  @Getter
+  private final String fieldName;
+
+  @Getter
+  private final Class< ? > fieldType;
+
+  /**
+   * Represents a mapped column as declared on the model, before any codec applied
+   * @param name Name of the column
+   * @param type Datatype of the column
+   * @param length Length of the datatype
+   * @param key If this is a unique key
+   * @param nullable If this column is nullable
+   * @param codecs If default codecs may apply, false if the datatype has been specified explicitly
+   * @param fieldName Name of the target field
+   * @param fieldType Type of the target field
+   */
+  public SchemaColumn( String name, String type, String length, boolean key, boolean nullable, boolean codecs, String fieldName, Class< ? > fieldType ) {
+    this.name = name;
+    this.type = type;
+    this.length = length;
+    this.key = key;
+    this.nullable = nullable;
+    this.codecs = codecs;
+    this.fieldName = fieldName;
+    this.fieldType = fieldType;
+  }
+}
@@ -0,0 +1,27 @@
+package at.sps.core.orm;
+
+import lombok.Getter;
+
+public class SchemaIndex {
+
+  @Getter
+  private final String name;
+
+  @Getter
+  private final String[] columns;
+
+  @Getter
+  private final int[] prefixes;
+
+  /**
+   * Represents a secondary index as declared by {@link Index}
+   * @param name Name of the index, empty to derive it from the columns
+   * @param columns Columns of the index in order
+   * @param prefixes Prefix lengths, in the same order as columns
+   */
+  public SchemaIndex( String name, String[] columns, int[] prefixes ) {
+    this.name = name;
+    this.columns = columns;
+    this.prefixes = prefixes;
+  }
+}
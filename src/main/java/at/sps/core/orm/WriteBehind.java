@@ -0,0 +1,16 @@
+package at.sps.core.orm;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a model whose updating writes get buffered in memory and flushed in the
+ * background, repeated updates of the same key collapse into a single upsert.
+ * The model needs at least one key column to be buffered
+ */
+@Retention( RetentionPolicy.RUNTIME )
+@Target( ElementType.TYPE )
+public @interface WriteBehind {
+}
@@ -0,0 +1,143 @@
+package at.sps.core.orm.codecs;
+
+import at.sps.core.orm.ColumnCodec;
+import at.sps.core.utils.LogLevel;
+import at.sps.core.utils.SLogging;
+
+import java.io.ByteArrayOutputStream;
+import java.net.InetAddress;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.regex.Pattern;
+
+public class AddressListCodec implements ColumnCodec {
+
+  // Only literal addresses are stored, anything else would need a DNS lookup
+  private static final Pattern LITERAL = Pattern.compile( "[0-9a-fA-F:.]+" );
+
+  /**
+   * Stores lists of IP addresses packed as their raw bytes, each prefixed by it's
+   * length (4 or 16). Addresses are normalized on the way, duplicates get dropped
+   */
+  public AddressListCodec() {}
+
+  @Override
+  public String getType() {
+    return "BLOB";
+  }
+
+  @Override
+  @SuppressWarnings( "unchecked" )
+  public Object encode( Object value ) {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    for( byte[] address : normalize( ( Collection< String > ) value ) ) {
+      out.write( address.length );
+      out.write( address, 0, address.length );
+    }
+
+    return out.toByteArray();
+  }
+
+  @Override
+  public Object decode( ResultSet rs, int column ) throws SQLException {
+    byte[] packed = rs.getBytes( column );
+    if( packed == null )
+      return null;
+
+    List< String > addresses = new ArrayList<>();
+    try {
+      for( int i = 0; i < packed.length; ) {
+        int len = packed[ i++ ];
+        addresses.add( InetAddress.getByAddress( Arrays.copyOfRange( packed, i, i + len ) ).getHostAddress() );
+        i += len;
+      }
+    } catch ( Exception e ) {
+      throw new SQLException( "Malformed address list in column " + column + "!", e );
+    }
+
+    return addresses;
+  }
+
+  @Override
+  public Object migrate( ResultSet rs, String column ) throws SQLException {
+    // Lists were stored as text, delimited by semicolons
+    String text = rs.getString( column );
+    if( text == null )
+      return null;
+
+    return encode( text.isEmpty() ? new ArrayList<>() : Arrays.asList( text.split( ";" ) ) );
+  }
+
+  /**
+   * Bring an address into the form it's decoded as, so it can be compared with stored lists
+   * @param address Literal address in text form
+   * @return Normalized address, null if it's not a valid literal
+   */
+  public static String canonical( String address ) {
+    try {
+      return InetAddress.getByAddress( parse( address ) ).getHostAddress();
+    } catch ( Exception e ) {
+      return null;
+    }
+  }
+
+  /**
+   * Pack a single address just like it's stored within a list, to search lists for it
+   * @param address Literal address in text form
+   * @return Length prefixed raw bytes, null if it's not a valid literal
+   */
+  public static byte[] pack( String address ) {
+    try {
+      byte[] raw = parse( address );
+      byte[] entry = new byte[ raw.length + 1 ];
+      entry[ 0 ] = ( byte ) raw.length;
+      System.arraycopy( raw, 0, entry, 1, raw.length );
+      return entry;
+    } catch ( Exception e ) {
+      return null;
+    }
+  }
+
+  /**
+   * Parse a literal address into it's raw bytes
+   * @param address Literal address in text form
+   * @return Raw bytes of the address
+   * @throws Exception Not a valid literal address
+   */
+  private static byte[] parse( String address ) throws Exception {
+    String trimmed = address.trim();
+    if( !LITERAL.matcher( trimmed ).matches() )
+      throw new IllegalArgumentException( "Not a literal address" );
+
+    // Literals are only validated, never resolved
+    return InetAddress.getByName( trimmed ).getAddress();
+  }
+
+  /**
+   * Parse all literal addresses of a list, invalid and duplicate ones are skipped
+   * @param addresses Addresses in text form
+   * @return Distinct addresses as raw bytes, in list order
+   */
+  private List< byte[] > normalize( Collection< String > addresses ) {
+    List< byte[] > res = new ArrayList<>();
+    Set< String > seen = new HashSet<>();
+
+    for( String address : addresses ) {
+      String trimmed = address.trim();
+      if( trimmed.isEmpty() )
+        continue;
+
+      try {
+        byte[] raw = parse( trimmed );
+        if( seen.add( Arrays.toString( raw ) ) )
+          res.add( raw );
+      } catch ( Exception e ) {
+        SLogging.getInst().log( "Skipping invalid address " + trimmed + " in an address list!", LogLevel.WARNING );
+      }
+    }
+
+    return res;
+  }
+}
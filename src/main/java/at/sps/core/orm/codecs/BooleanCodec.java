@@ -0,0 +1,41 @@
+package at.sps.core.orm.codecs;
+
+import at.sps.core.orm.ColumnCodec;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+public class BooleanCodec implements ColumnCodec {
+
+  /**
+   * Stores booleans as a single byte number instead of text
+   */
+  public BooleanCodec() {}
+
+  @Override
+  public String getType() {
+    return "TINYINT(1)";
+  }
+
+  @Override
+  public Object encode( Object value ) {
+    return ( Boolean ) value ? 1 : 0;
+  }
+
+  @Override
+  public Object decode( ResultSet rs, int column ) throws SQLException {
+    boolean value = rs.getBoolean( column );
+    return rs.wasNull() ? null : value;
+  }
+
+  @Override
+  public Object migrate( ResultSet rs, String column ) throws SQLException {
+    String text = rs.getString( column );
+    if( text == null )
+      return null;
+
+    // Text columns held either the driver's 1/0 or the literal name
+    text = text.trim();
+    return text.equals( "1" ) || text.equalsIgnoreCase( "true" ) ? 1 : 0;
+  }
+}
@@ -0,0 +1,62 @@
+package at.sps.core.orm.codecs;
+
+import at.sps.core.orm.ColumnCodec;
+
+import java.nio.ByteBuffer;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.UUID;
+
+public class UUIDCodec implements ColumnCodec {
+
+  /**
+   * Stores UUIDs as their raw 16 bytes instead of the 36 character text form
+   */
+  public UUIDCodec() {}
+
+  @Override
+  public String getType() {
+    return "BINARY(16)";
+  }
+
+  @Override
+  public Object encode( Object value ) {
+    return toBytes( ( UUID ) value );
+  }
+
+  @Override
+  public Object decode( ResultSet rs, int column ) throws SQLException {
+    return fromBytes( rs.getBytes( column ) );
+  }
+
+  @Override
+  public Object migrate( ResultSet rs, String column ) throws SQLException {
+    String text = rs.getString( column );
+    return text == null ? null : toBytes( UUID.fromString( text.trim() ) );
+  }
+
+  /**
+   * Convert a UUID into it's 16 bytes, most significant first
+   * @param id UUID to convert
+   * @return Bytes of the UUID
+   */
+  public static byte[] toBytes( UUID id ) {
+    return ByteBuffer.allocate( 16 )
+      .putLong( id.getMostSignificantBits() )
+      .putLong( id.getLeastSignificantBits() )
+      .array();
+  }
+
+  /**
+   * Convert 16 bytes back into a UUID
+   * @param bytes Bytes of the UUID, may be null
+   * @return UUID, null if no bytes were provided
+   */
+  public static UUID fromBytes( byte[] bytes ) {
+    if( bytes == null )
+      return null;
+
+    ByteBuffer buf = ByteBuffer.wrap( bytes );
+    return new UUID( buf.getLong(), buf.getLong() );
+  }
+}
@@ -0,0 +1,186 @@
+package at.sps.core.orm.codecs;
+
+import at.sps.core.Main;
+import at.sps.core.orm.ColumnCodec;
+import at.sps.core.orm.MariaDB;
+import org.bukkit.Bukkit;
+import org.bukkit.World;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.world.WorldLoadEvent;
+import org.bukkit.event.world.WorldUnloadEvent;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class WorldCodec implements ColumnCodec, Listener {
+
+  private static final String QUERY_CREATE = "CREATE TABLE IF NOT EXISTS `World` (`ID` SMALLINT NOT NULL AUTO_INCREMENT, `name` VARCHAR(128) NOT NULL, PRIMARY KEY(`ID`), CONSTRAINT UC_World UNIQUE (`name`));";
+  private static final String QUERY_ALL = "SELECT `ID`, `name` FROM `World`";
+  private static final String QUERY_BY_NAME = "SELECT `ID` FROM `World` WHERE `name` = ?";
+  private static final String QUERY_ADD = "INSERT IGNORE INTO `World` (`name`) VALUES (?)";
+
+  private static WorldCodec inst;
+
+  // Dictionary entries by name, entries never change once assigned
+  private final Map< String, Integer > ids;
+
+  // Loaded worlds by their dictionary ID, only changed on the main thread
+  private final Map< Integer, World > worlds;
+  private volatile MariaDB database;
+
+  /**
+   * Stores worlds as a small number, the names live once in a dictionary table
+   * shared by every model with a world column. The dictionary is read once and
+   * extended whenever a world loads, so encoding and decoding are plain lookups
+   */
+  private WorldCodec() {
+    inst = this;
+    this.ids = new ConcurrentHashMap<>();
+    this.worlds = new ConcurrentHashMap<>();
+  }
+
+  @Override
+  public String getType() {
+    return "SMALLINT";
+  }
+
+  @Override
+  public synchronized void prepare( MariaDB database ) throws Exception {
+    // Shared between mappers, only prepare once
+    if( this.database != null )
+      return;
+
+    database.executeUpdate( QUERY_CREATE );
+    database.fetch( QUERY_ALL, rs -> {
+      while( rs.next() )
+        ids.put( rs.getString( "name" ), rs.getInt( "ID" ) );
+      return null;
+    } );
+
+    this.database = database;
+
+    // Worlds loaded before the plugin got enabled, later ones are registered as they load
+    for( World world : Bukkit.getWorlds() )
+      worlds.put( register( world.getName() ), world );
+
+    Bukkit.getPluginManager().registerEvents( this, Main.getInst() );
+  }
+
+  @Override
+  public void prepareMigration( MariaDB database, String table, String column ) throws Exception {
+    // Worlds were stored by their name, which may not be known yet
+    List< String > stored = database.fetch( "SELECT DISTINCT `" + column + "` FROM `" + table + "` WHERE `" + column + "` IS NOT NULL", rs -> {
+      List< String > buf = new ArrayList<>();
+      while( rs.next() )
+        buf.add( rs.getString( 1 ) );
+      return buf;
+    } );
+
+    for( String name : stored )
+      register( name );
+  }
+
+  @Override
+  public Object encode( Object value ) {
+    String name = ( ( World ) value ).getName();
+    Integer id = ids.get( name );
+    if( id == null )
+      throw new IllegalStateException( "World " + name + " is missing in the dictionary!" );
+
+    return id;
+  }
+
+  @Override
+  public Object decode( ResultSet rs, int column ) throws SQLException {
+    int id = rs.getInt( column );
+    if( rs.wasNull() )
+      return null;
+
+    // Worlds which aren't loaded on this server decode to null
+    return worlds.get( id );
+  }
+
+  @Override
+  public Object migrate( ResultSet rs, String column ) throws SQLException {
+    // Worlds were stored by their name, all of them got registered beforehand
+    String name = rs.getString( column );
+    if( name == null )
+      return null;
+
+    Integer id = ids.get( name );
+    if( id == null )
+      throw new SQLException( "World " + name + " is missing in the dictionary!" );
+
+    return id;
+  }
+
+  /**
+   * Add a world to the dictionary when it loads, this runs on the main thread
+   * @param e Event of the world load
+   */
+  @EventHandler( priority = EventPriority.LOWEST )
+  public void onLoad( WorldLoadEvent e ) {
+    try {
+      worlds.put( register( e.getWorld().getName() ), e.getWorld() );
+    } catch ( SQLException ex ) {
+      throw new IllegalStateException( "Could not add world " + e.getWorld().getName() + " to the dictionary!", ex );
+    }
+  }
+
+  /**
+   * Forget the instance of a world when it unloads, it's dictionary entry stays
+   * @param e Event of the world unload
+   */
+  @EventHandler( priority = EventPriority.MONITOR, ignoreCancelled = true )
+  public void onUnload( WorldUnloadEvent e ) {
+    Integer id = ids.get( e.getWorld().getName() );
+    if( id != null )
+      worlds.remove( id );
+  }
+
+  /**
+   * Get the dictionary ID of a world, assigns a new one if it's not yet known
+   * @param name Name of the world
+   * @return ID of the world
+   */
+  private int register( String name ) throws SQLException {
+    Integer id = ids.get( name );
+    if( id != null )
+      return id;
+
+    if( database == null )
+      throw new SQLException( "The world dictionary has not been prepared yet!" );
+
+    // Another server on the same database may have added it already, thus ignore duplicates
+    try {
+      database.executeUpdate( QUERY_ADD, name );
+      id = database.fetch( QUERY_BY_NAME, rs -> rs.next() ? rs.getInt( 1 ) : null, name );
+    } catch ( SQLException e ) {
+      throw e;
+    } catch ( Exception e ) {
+      throw new SQLException( "Could not add world " + name + " to the dictionary!", e );
+    }
+
+    if( id == null )
+      throw new SQLException( "World " + name + " is missing in the dictionary!" );
+
+    ids.put( name, id );
+    return id;
+  }
+
+  /**
+   * Singleton instance getter for the world codec
+   */
+  public static WorldCodec getInst() {
+    if( inst == null )
+      return new WorldCodec();
+
+    return inst;
+  }
+}
@@ -1,33 +1,127 @@
 package at.sps.core.orm.mappers;
 
 import at.sps.core.Main;
+import at.sps.core.cache.BanIndex;
+import at.sps.core.orm.ActionResult;
 import at.sps.core.orm.MariaDB;
 import at.sps.core.orm.ModelMapper;
+import at.sps.core.orm.codecs.AddressListCodec;
 import at.sps.core.orm.models.Ban;
 import at.sps.core.utils.LogLevel;
 import at.sps.core.utils.SLogging;
 
-import java.sql.ResultSet;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 public class BanMapper extends ModelMapper< Ban > {
 
   private static BanMapper inst;
 
+  // Frequently used queries, prepared ahead of time
+  private static final String QUERY_BY_HOLDER = "SELECT * FROM `Ban` WHERE `holder` = ?";
+  private static final String QUERY_COUNT_BY_HOLDER = "SELECT COUNT(*) FROM `Ban` WHERE `holder` = ?";
+
+  // Seeks past the last shown ban, so deep pages cost the same as the first one
+  private static final String QUERY_PAGE_BY_HOLDER = "SELECT * FROM `Ban` WHERE `holder` = ? AND `ID` > ? ORDER BY `ID` LIMIT ?";
+
+  // Loads all active bans into the index
+  private static final String QUERY_ACTIVE = "SELECT * FROM `Ban` WHERE `revoker` IS NULL AND (`permanent` = 1 OR `expireDate` > ?)";
+
+  // Active bans of a player or one of it's addresses, used while the index is not loaded
+  private static final String QUERY_ACTIVE_FOR_HOLDER = QUERY_ACTIVE + " AND `holder` = ?";
+  private static final String QUERY_ACTIVE_FOR = QUERY_ACTIVE + " AND (`holder` = ? OR LOCATE(?, `ipAddresses`) > 0)";
+
   /**
    * The ban-mapper is used to create, delete update and list bans
    * @param database Connection to the SQL database for r/w
    */
-  @SuppressWarnings( { "unchecked" } )
   private BanMapper( MariaDB database ) {
     super( database );
     inst = this;
 
-    // Register a translator for the IP-List to convert it into CSV
-    registerTranslator( "ipAddresses", val -> String.join( ";", ( List< String > ) val ) );
+    // Store the IP-List packed, each address only once
+    registerCodec( "ipAddresses", new AddressListCodec() );
+  }
+
+  /**
+   * Add a new ban to the storage
+   * @param ban Ban to add
+   * @return ActionResult which tells the status
+   */
+  public ActionResult addBan( Ban ban ) {
+    ActionResult result = write( ban, false );
+    if( result == ActionResult.OK )
+      BanIndex.getInst().put( ban );
+
+    return result;
+  }
+
+  /**
+   * Update an existing ban, for revoking it f.e.
+   * @param ban Ban to update
+   * @return ActionResult which tells the status
+   */
+  public ActionResult updateBan( Ban ban ) {
+    ActionResult result = write( ban, true );
+    if( result == ActionResult.OK )
+      BanIndex.getInst().put( ban );
+
+    return result;
+  }
+
+  /**
+   * Delete a ban and all it's data from the storage
+   * @param ban Ban to delete
+   * @return ActionResult which tells the status
+   */
+  public ActionResult removeBan( Ban ban ) {
+    ActionResult result = delete( Collections.singletonList( ban ) );
+    if( result == ActionResult.OK )
+      BanIndex.getInst().remove( ban );
+
+    return result;
+  }
+
+  /**
+   * List all bans which are neither revoked nor expired
+   * @return List of active bans, null on errors
+   */
+  public List< Ban > listActiveBans() {
+    try {
+      return database.fetch( QUERY_ACTIVE, this::readAll, System.currentTimeMillis() );
+    } catch ( Exception e ) {
+      SLogging.getInst().log( "Error while listing active bans!", LogLevel.ERROR );
+      SLogging.getInst().log( e );
+      return null;
+    }
+  }
+
+  /**
+   * Find an active ban of a player or of the address it connects from, straight from the database
+   * @param holder UUID of the player
+   * @param address Address the player connects from, may be null
+   * @return Active ban if one exists, null otherwise
+   * @throws Exception Error on execution, the ban state is unknown
+   */
+  public Ban findActiveBan( UUID holder, String address ) throws Exception {
+    long now = System.currentTimeMillis();
+    byte[] entry = address == null ? null : AddressListCodec.pack( address );
+    String canonical = address == null ? null : AddressListCodec.canonical( address );
+
+    // Searching the packed bytes may hit across entry boundaries, thus verify the decoded lists
+    List< Ban > bans = entry == null ?
+      database.fetch( QUERY_ACTIVE_FOR_HOLDER, this::readAll, now, bindColumn( "holder", holder ) ) :
+      database.fetch( QUERY_ACTIVE_FOR, this::readAll, now, bindColumn( "holder", holder ), entry );
+
+    for( Ban ban : bans ) {
+      if( ban.isActive() && ( ban.getHolder().equals( holder ) || ban.getIpAddresses().contains( canonical ) ) )
+        return ban;
+    }
+
+    return null;
   }
 
   /**
@@ -38,11 +132,7 @@ public class BanMapper extends ModelMapper< Ban > {
   public List< Ban > listBans( UUID target ) {
     try {
       // Fetch result to get only the target player's bans
-      return read( database.fetchResult(
-        "SELECT * FROM `Ban`" +
-        "WHERE `holder` = ?",
-        target.toString()
-      ) );
+      return database.fetch( QUERY_BY_HOLDER, this::read, bindColumn( "holder", target ) );
     } catch ( Exception e ) {
       SLogging.getInst().log( "Error while listing bans!", LogLevel.ERROR );
       SLogging.getInst().log( e );
@@ -51,37 +141,75 @@ public class BanMapper extends ModelMapper< Ban > {
   }
 
   /**
-   * Read bans from the database
-   * @param rs ResultSet from an executed query
-   * @return List of generated bans
+   * Async variant of {@link #listBans(UUID)}
+   * @param target Target UUID to look for
+   * @return Future of the list of bans
    */
-  @Override
-  public List< Ban > read( ResultSet rs ) {
-    List< Ban > buf = new ArrayList<>();
+  public CompletableFuture< List< Ban > > listBansAsync( UUID target ) {
+    return async( () -> listBans( target ) );
+  }
+
+  /**
+   * List a page of bans for a specific player, in the order of their creation
+   * @param target Target UUID to look for
+   * @param afterId ID of the last ban on the previous page, 0 for the first page
+   * @param limit Max. number of bans on this page
+   * @return List of bans
+   */
+  public List< Ban > pageBans( UUID target, int afterId, int limit ) {
+    try {
+      return database.fetch( QUERY_PAGE_BY_HOLDER, this::read, bindColumn( "holder", target ), afterId, limit );
+    } catch ( Exception e ) {
+      SLogging.getInst().log( "Error while listing a page of bans!", LogLevel.ERROR );
+      SLogging.getInst().log( e );
+      return new ArrayList<>();
+    }
+  }
+
+  /**
+   * Async variant of {@link #pageBans(UUID, int, int)}
+   * @param target Target UUID to look for
+   * @param afterId ID of the last ban on the previous page, 0 for the first page
+   * @param limit Max. number of bans on this page
+   * @return Future of the list of bans
+   */
+  public CompletableFuture< List< Ban > > pageBansAsync( UUID target, int afterId, int limit ) {
+    return async( () -> pageBans( target, afterId, limit ) );
+  }
 
+  /**
+   * Count all bans of a specific player
+   * @param target Target UUID to look for
+   * @return Number of bans, 0 on errors
+   */
+  public int countBans( UUID target ) {
     try {
-      // Loop result rows
-      while( rs.next() ) {
-        // Fetch data and generate Ban object into buffer list
-        UUID holder = UUID.fromString( rs.getString( "holder" ) );
-        UUID creator = UUID.fromString( rs.getString( "creator" ) );
-        UUID revoker = UUID.fromString( rs.getString( "revoker" ) );
-        List< String > ips = Arrays.asList( rs.getString( "ipAddresses" ).split( ";" ) );
-
-        Ban ban = new Ban(
-          holder, creator, rs.getString( "reason" ), rs.getLong( "creationDate" ), rs.getLong( "expireDate" ),
-          rs.getBoolean( "permanent" ), ips, revoker, rs.getString( "revokeReason" ), rs.getLong( "revokeDate" )
-        );
-
-        bindID( ban, rs );
-        buf.add( ban );
-      }
+      return database.fetch( QUERY_COUNT_BY_HOLDER, rs -> rs.next() ? rs.getInt( 1 ) : 0, bindColumn( "holder", target ) );
     } catch ( Exception e ) {
-      SLogging.getInst().log( "Error while mapping read bans!", LogLevel.ERROR );
+      SLogging.getInst().log( "Error while counting bans!", LogLevel.ERROR );
       SLogging.getInst().log( e );
+      return 0;
     }
+  }
+
+  /**
+   * Async variant of {@link #countBans(UUID)}
+   * @param target Target UUID to look for
+   * @return Future of the number of bans
+   */
+  public CompletableFuture< Integer > countBansAsync( UUID target ) {
+    return async( () -> countBans( target ) );
+  }
 
-    return buf;
+  @Override
+  public List< String > getHotStatements() {
+    List< String > hot = super.getHotStatements();
+    hot.add( QUERY_BY_HOLDER );
+    hot.add( QUERY_COUNT_BY_HOLDER );
+    hot.add( QUERY_PAGE_BY_HOLDER );
+    hot.add( QUERY_ACTIVE_FOR_HOLDER );
+    hot.add( QUERY_ACTIVE_FOR );
+    return hot;
   }
 
   /**
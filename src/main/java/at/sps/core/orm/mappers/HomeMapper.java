@@ -1,27 +1,31 @@
 package at.sps.core.orm.mappers;
 
 import at.sps.core.Main;
+import at.sps.core.cache.HomeCache;
 import at.sps.core.orm.ActionResult;
 import at.sps.core.orm.MariaDB;
 import at.sps.core.orm.ModelMapper;
-import at.sps.core.orm.ObjectRebuilder;
 import at.sps.core.orm.models.Home;
 import at.sps.core.utils.LogLevel;
 import at.sps.core.utils.SLogging;
-import org.bukkit.Bukkit;
-import org.bukkit.Location;
-import org.bukkit.World;
 
-import java.sql.ResultSet;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 public class HomeMapper extends ModelMapper< Home > {
 
     private static HomeMapper inst;
 
+    // Frequently used queries, prepared ahead of time
+    private static final String QUERY_COUNT = "SELECT COUNT(*) AS num FROM `Home` WHERE `uuid` = ?";
+    private static final String QUERY_LIST = "SELECT * FROM `Home` WHERE `uuid` = ?";
+
+    // Adding is serialized per player (striped by UUID), so concurrent adds can't pass the limit together
+    private final Object[] addLocks;
+
     /**
      * The home-mapper is used to add, delete, search and list player homes
      * @param database Connection to the SQL database for r/w
@@ -30,9 +34,9 @@ public class HomeMapper extends ModelMapper< Home > {
         super( database );
         inst = this;
 
-        // Register world translator to get the world's name, UUID translator to perform toString
-        registerTranslator( World.class, val -> ( ( World ) val ).getName() );
-        registerTranslator( UUID.class, Object::toString );
+        this.addLocks = new Object[ 16 ];
+        for( int i = 0; i < addLocks.length; i++ )
+            addLocks[ i ] = new Object();
     }
 
     /**
@@ -41,7 +45,34 @@ public class HomeMapper extends ModelMapper< Home > {
      * @return ActionResult which tells the status
      */
     public ActionResult addHome( Home home ) {
-        return write( home, false );
+        // Duplicates of cached players are known without asking the database
+        HomeCache cache = HomeCache.getInst();
+        if( cache.isLoaded( home.getPlayerUUID() ) && cache.get( home.getPlayerUUID(), home.getName() ) != null )
+            return ActionResult.ALREADY_EXISTENT;
+
+        // Write through into the cache
+        ActionResult result = write( home, false );
+        if( result == ActionResult.OK )
+            cache.put( home );
+
+        return result;
+    }
+
+    /**
+     * Add a new home to the storage, if the owner has less homes than the limit allows,
+     * counting and adding happen atomically per player
+     * @param home Home to add to database
+     * @param limit Max. number of homes the owner may have
+     * @return ActionResult which tells the status
+     */
+    public ActionResult addHome( Home home, int limit ) {
+        UUID owner = home.getPlayerUUID();
+        synchronized ( addLocks[ Math.floorMod( owner.hashCode(), addLocks.length ) ] ) {
+            if( getHomeCount( owner ) >= limit )
+                return ActionResult.LIMIT_REACHED;
+
+            return addHome( home );
+        }
     }
 
     /**
@@ -51,7 +82,22 @@ public class HomeMapper extends ModelMapper< Home > {
      * @return ActionResult which tells the status
      */
     public ActionResult removeHome( UUID playerId, String name ) {
-        return delete( Collections.singletonList( getByName( playerId, name ) ) );
+        HomeCache cache = HomeCache.getInst();
+        Home target = getByName( playerId, name );
+
+        // Not existing for a cached player, no need to ask the database
+        if( target == null && cache.isLoaded( playerId ) )
+            return ActionResult.NON_EXISTENT;
+
+        // Homes added while cached don't know their generated ID yet
+        if( target != null && target.getID() == 0 )
+            target = readByKey( name, playerId );
+
+        ActionResult result = delete( Collections.singletonList( target ) );
+        if( result == ActionResult.OK )
+            cache.remove( playerId, name );
+
+        return result;
     }
 
     /**
@@ -61,21 +107,13 @@ public class HomeMapper extends ModelMapper< Home > {
      * @return Home if found, null otherwise
      */
     public Home getByName( UUID playerId, String name ) {
-        try {
-            // Fetch result to get only the target player's home with corresponding name
-            List< Home > result = read( database.fetchResult(
-                "SELECT * FROM `Home`" +
-                "WHERE `uuid` = ? AND `name` = ?",
-                playerId.toString(), name
-            ) );
-
-            // There can just be one result since UUID & name are the key
-            return result.size() > 0 ? result.get( 0 ) : null;
-        } catch ( Exception e ) {
-            SLogging.getInst().log( "Error while searching for a home by it's name!", LogLevel.ERROR );
-            SLogging.getInst().log( e );
-            return null;
-        }
+        // Served from memory for cached players
+        HomeCache cache = HomeCache.getInst();
+        if( cache.isLoaded( playerId ) )
+            return cache.get( playerId, name );
+
+        // Precompiled key lookup, name comes first within the model
+        return readByKey( name, playerId );
     }
 
     /**
@@ -84,15 +122,16 @@ public class HomeMapper extends ModelMapper< Home > {
      * @return Number of homes
      */
     public int getHomeCount( UUID playerId ) {
+        // Served from memory for cached players
+        Integer cached = HomeCache.getInst().count( playerId );
+        if( cached != null )
+            return cached;
+
         try {
-            ResultSet countRs = database.fetchResult(
-                "SELECT COUNT(*) AS num FROM `Home`" +
-                "WHERE `uuid` = ?",
-                playerId.toString()
-            );
-
-            if( countRs.next() )
-                return countRs.getInt( "num" );
+            Integer count = database.fetch( QUERY_COUNT, countRs -> countRs.next() ? countRs.getInt( "num" ) : null, bindColumn( "uuid", playerId ) );
+
+            if( count != null )
+                return count;
         } catch ( Exception e ) {
             SLogging.getInst().log( "Error while counting player's homes!", LogLevel.ERROR );
             SLogging.getInst().log( e );
@@ -108,54 +147,103 @@ public class HomeMapper extends ModelMapper< Home > {
      * @return List of his homes
      */
     public List< Home > listHomes( UUID playerId ) {
+        // Served from memory for cached players
+        List< Home > cached = HomeCache.getInst().list( playerId );
+        if( cached != null )
+            return cached;
+
+        List< Home > fetched = fetchHomes( playerId );
+        return fetched == null ? new ArrayList<>() : fetched;
+    }
+
+    /**
+     * List all homes for a specific player from the database, bypassing the cache
+     * @param playerId Home owner ID
+     * @return List of his homes, null on errors
+     */
+    public List< Home > fetchHomes( UUID playerId ) {
         try {
             // Fetch result to get only the target player's homes
-            return read( database.fetchResult(
-                "SELECT * FROM `Home`" +
-                "WHERE `uuid` = ?",
-                playerId.toString()
-            ) );
+            return database.fetch( QUERY_LIST, this::readAll, bindColumn( "uuid", playerId ) );
         } catch ( Exception e ) {
             SLogging.getInst().log( "Error while listing homes!", LogLevel.ERROR );
             SLogging.getInst().log( e );
-            return new ArrayList<>();
+            return null;
         }
     }
 
     /**
-     * Read homes from the database
-     * @param rs ResultSet from an executed query
-     * @return List of generated homes
+     * Async variant of {@link #addHome(Home)}
+     * @param home Home to add to database
+     * @return Future of the ActionResult
      */
-    @Override
-    public List< Home > read( ResultSet rs ) {
-        List< Home > buf = new ArrayList<>();
+    public CompletableFuture< ActionResult > addHomeAsync( Home home ) {
+        return async( () -> addHome( home ) );
+    }
 
-        try {
-            // Loop result rows
-            while( rs.next() ) {
-                // Get the world by name
-                World w = Bukkit.getWorld( rs.getString( "world" ) );
-
-                // Rebuild location based on the world and coordinates from RS
-                Location loc = new ObjectRebuilder< Location >( Location.class, rs )
-                        .addArgs( w )
-                        .addColumns( "x", "y", "z", "yaw", "pitch" )
-                        .build();
-
-                // Fetch uuid and generate Home object into buffer list
-                UUID uu = UUID.fromString( rs.getString( "uuid" ) );
-                Home home = new Home( uu, rs.getString( "name" ), loc, rs.getLong( "creationDate" ) );
-                bindID( home, rs );
-
-                buf.add( home );
-            }
-        } catch ( Exception e ) {
-            SLogging.getInst().log( "Error while mapping read homes!", LogLevel.ERROR );
-            SLogging.getInst().log( e );
-        }
+    /**
+     * Async variant of {@link #addHome(Home, int)}
+     * @param home Home to add to database
+     * @param limit Max. number of homes the owner may have
+     * @return Future of the ActionResult
+     */
+    public CompletableFuture< ActionResult > addHomeAsync( Home home, int limit ) {
+        return async( () -> addHome( home, limit ) );
+    }
+
+    /**
+     * Async variant of {@link #removeHome(UUID, String)}
+     * @param playerId Home owner ID
+     * @param name Name of the home
+     * @return Future of the ActionResult
+     */
+    public CompletableFuture< ActionResult > removeHomeAsync( UUID playerId, String name ) {
+        return async( () -> removeHome( playerId, name ) );
+    }
+
+    /**
+     * Async variant of {@link #getByName(UUID, String)}
+     * @param playerId Home owner ID
+     * @param name Name of the home
+     * @return Future of the home, null if not found
+     */
+    public CompletableFuture< Home > getByNameAsync( UUID playerId, String name ) {
+        if( HomeCache.getInst().isLoaded( playerId ) )
+            return CompletableFuture.completedFuture( getByName( playerId, name ) );
 
-        return buf;
+        return async( () -> getByName( playerId, name ) );
+    }
+
+    /**
+     * Async variant of {@link #getHomeCount(UUID)}
+     * @param playerId Player to count for
+     * @return Future of the number of homes
+     */
+    public CompletableFuture< Integer > getHomeCountAsync( UUID playerId ) {
+        if( HomeCache.getInst().isLoaded( playerId ) )
+            return CompletableFuture.completedFuture( getHomeCount( playerId ) );
+
+        return async( () -> getHomeCount( playerId ) );
+    }
+
+    /**
+     * Async variant of {@link #listHomes(UUID)}
+     * @param playerId Home owner ID
+     * @return Future of the list of his homes
+     */
+    public CompletableFuture< List< Home > > listHomesAsync( UUID playerId ) {
+        if( HomeCache.getInst().isLoaded( playerId ) )
+            return CompletableFuture.completedFuture( listHomes( playerId ) );
+
+        return async( () -> listHomes( playerId ) );
+    }
+
+    @Override
+    public List< String > getHotStatements() {
+        List< String > hot = super.getHotStatements();
+        hot.add( QUERY_COUNT );
+        hot.add( QUERY_LIST );
+        return hot;
     }
 
     /**
@@ -8,15 +8,20 @@ import at.sps.core.orm.models.KitCooldown;
 import at.sps.core.utils.LogLevel;
 import at.sps.core.utils.SLogging;
 
-import java.sql.ResultSet;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.UUID;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
 
 public class KitCooldownMapper extends ModelMapper< KitCooldown > {
 
   private static KitCooldownMapper inst;
 
+  // Moves the last use to now only if the cooldown has passed, the filter decides the claim
+  private static final String QUERY_CLAIM = "UPDATE `KitCooldown` SET `lastUse` = ? WHERE `holder` = ? AND `kitID` = ? AND `lastUse` <= ?";
+
+  // Stores the first use, rows which exist already are left untouched
+  private static final String QUERY_CLAIM_FIRST = "INSERT IGNORE INTO `KitCooldown` (`holder`, `kitID`, `lastUse`) VALUES (?, ?, ?)";
+  private static final String QUERY_LAST_USE = "SELECT `lastUse` FROM `KitCooldown` WHERE `holder` = ? AND `kitID` = ?";
+
   /**
    * The kit cooldown mapper is used to keep track of cooldowns per
    * player of existing kits
@@ -24,8 +29,6 @@ public class KitCooldownMapper extends ModelMapper< KitCooldown > {
   public KitCooldownMapper( MariaDB database ) {
     super( database );
     inst = this;
-
-    registerTranslator( UUID.class, Object::toString );
   }
 
   /**
@@ -43,47 +46,81 @@ public class KitCooldownMapper extends ModelMapper< KitCooldown > {
    * @return KitCooldown if exists, null otherwise
    */
   public KitCooldown getForPlayer( UUID uuid, Kit target ) {
-    try {
-      // Fetch result to get only the target player's cooldown for the specific kit
-      List< KitCooldown > result = read( database.fetchResult(
-          "SELECT * FROM `KitCooldown`" +
-          "WHERE `holder` = ? AND `kitID` = ?",
-          uuid.toString(), target.getID()
-      ) );
-
-      // There can just be one result since UUID & ID are the key
-      return result.size() > 0 ? result.get( 0 ) : null;
-    } catch ( Exception e ) {
-      SLogging.getInst().log( "Error while searching for a kitcooldown by it's uuid and kitID!", LogLevel.ERROR );
-      SLogging.getInst().log( e );
-      return null;
-    }
+    // Precompiled key lookup, there can just be one result since UUID & ID are the key
+    return readByKey( uuid, target.getID() );
   }
 
   /**
-   * Read kitcooldowns from the database
-   * @param rs ResultSet from an executed query
-   * @return List of generated kits
+   * Get the cooldowns for a player and multiple kits within one query
+   * @param uuid UUID of the executing player
+   * @param targets Target kits to get the cooldowns from
+   * @return Existing cooldowns by the ID of their kit
    */
-  @Override
-  public List< KitCooldown > read( ResultSet rs ) {
-    List< KitCooldown > buf = new ArrayList<>();
+  public Map< Integer, KitCooldown > getForPlayer( UUID uuid, Collection< Kit > targets ) {
+    List< List< Object > > keys = new ArrayList<>();
+    for( Kit target : targets )
+      keys.add( Arrays.asList( uuid, target.getID() ) );
+
+    Map< Integer, KitCooldown > cooldowns = new HashMap<>();
+    for( KitCooldown cooldown : getByKeys( keys ).values() )
+      cooldowns.put( cooldown.getKitID(), cooldown );
+
+    return cooldowns;
+  }
 
+  /**
+   * Claim a kit for a player if it's cooldown has passed, the cooldown is checked and set by the
+   * very same statement, so concurrent claims (double clicks, other servers) can't both succeed
+   * @param holder UUID of the claiming player
+   * @param kitId ID of the kit to claim
+   * @param cooldownMs Cooldown of the kit in milliseconds
+   * @param now Time of the claim, becomes the last use on success
+   * @return 0 if claimed, the remaining cooldown in milliseconds if not, null on errors
+   */
+  public Long tryClaim( UUID holder, int kitId, long cooldownMs, long now ) {
     try {
-      // Loop result rows
-      while( rs.next() ) {
-        UUID holder = UUID.fromString( rs.getString( "holder" ) );
-        KitCooldown cooldown = new KitCooldown( holder, rs.getInt( "kitID" ), rs.getLong( "lastUse" ) );
-        bindID( cooldown, rs );
-
-        buf.add( cooldown );
-      }
+      Object id = bindColumn( "holder", holder );
+
+      // The row only matches if the cooldown has passed
+      if( database.executeUpdate( QUERY_CLAIM, now, id, kitId, now - cooldownMs ) > 0 )
+        return 0L;
+
+      // Not matched, either this is the first use or the cooldown is still running
+      if( database.executeUpdate( QUERY_CLAIM_FIRST, id, kitId, now ) > 0 )
+        return 0L;
+
+      // Refused, the stored last use only tells the remaining time
+      Long lastUse = database.fetch( QUERY_LAST_USE, rs -> rs.next() ? rs.getLong( 1 ) : null, id, kitId );
+      if( lastUse == null )
+        return cooldownMs;
+
+      return Math.max( 1, cooldownMs - ( now - lastUse ) );
     } catch ( Exception e ) {
-      SLogging.getInst().log( "Error while mapping read kitcooldowns!", LogLevel.ERROR );
+      SLogging.getInst().log( "Error while claiming a kit!", LogLevel.ERROR );
       SLogging.getInst().log( e );
+      return null;
     }
+  }
+
+  /**
+   * Async variant of {@link #tryClaim(UUID, int, long, long)}
+   * @param holder UUID of the claiming player
+   * @param kitId ID of the kit to claim
+   * @param cooldownMs Cooldown of the kit in milliseconds
+   * @param now Time of the claim
+   * @return Future of the remaining cooldown, 0 if claimed
+   */
+  public CompletableFuture< Long > tryClaimAsync( UUID holder, int kitId, long cooldownMs, long now ) {
+    return async( () -> tryClaim( holder, kitId, cooldownMs, now ) );
+  }
 
-    return buf;
+  @Override
+  public List< String > getHotStatements() {
+    List< String > hot = super.getHotStatements();
+    hot.add( QUERY_CLAIM );
+    hot.add( QUERY_CLAIM_FIRST );
+    hot.add( QUERY_LAST_USE );
+    return hot;
   }
 
   /**
@@ -1,28 +1,51 @@
 package at.sps.core.orm.mappers;
 
 import at.sps.core.Main;
+import at.sps.core.cache.KitCatalog;
 import at.sps.core.orm.ActionResult;
 import at.sps.core.orm.MariaDB;
 import at.sps.core.orm.ModelMapper;
+import at.sps.core.orm.codecs.UUIDCodec;
 import at.sps.core.orm.models.Kit;
 import at.sps.core.utils.LogLevel;
+import at.sps.core.utils.Pair;
 import at.sps.core.utils.SLogging;
+import at.sps.core.utils.ItemCodec;
 import org.bukkit.inventory.ItemStack;
-import org.bukkit.util.io.BukkitObjectInputStream;
-import org.bukkit.util.io.BukkitObjectOutputStream;
-import org.yaml.snakeyaml.external.biz.base64Coder.Base64Coder;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 public class KitMapper extends ModelMapper< Kit > {
 
   private static KitMapper inst;
 
+  // Frequently used queries, prepared ahead of time
+  private static final String QUERY_BY_ID = "SELECT * FROM `Kit` WHERE `ID` = ?";
+
+  // Catalog loading, contents are kept encoded
+  private static final String QUERY_ALL = "SELECT * FROM `Kit`";
+  private static final String QUERY_BY_TITLE = "SELECT * FROM `Kit` WHERE `title` = ?";
+
+  // Kits with the remaining cooldown of a player, contents are left out
+  private static final String QUERY_WITH_COOLDOWNS = "SELECT k.`ID`, k.`title`, k.`description`, k.`cooldown`, k.`stackCount`, '' AS `contents`, " +
+    "GREATEST(0, k.`cooldown` - (? - c.`lastUse`)) AS `remaining` FROM `Kit` k " +
+    "LEFT JOIN `KitCooldown` c ON c.`kitID` = k.`ID` AND c.`holder` = ? " +
+    "WHERE LOWER(k.`title`) LIKE LOWER(CONCAT('%', ?, '%'))";
+
+  // Migration of contents from base64 text to the binary codec, the column's comment marks it as done
+  private static final String CONTENTS_MIGRATED = "binary";
+  private static final String QUERY_CONTENTS_TYPE = "SELECT `DATA_TYPE`, `COLUMN_COMMENT` FROM information_schema.`COLUMNS` WHERE `TABLE_SCHEMA` = DATABASE() AND `TABLE_NAME` = 'Kit' AND `COLUMN_NAME` = 'contents'";
+  private static final String QUERY_CONTENTS_ALTER = "ALTER TABLE `Kit` MODIFY `contents` MEDIUMBLOB NOT NULL";
+  private static final String QUERY_CONTENTS_MIGRATED = "ALTER TABLE `Kit` MODIFY `contents` MEDIUMBLOB NOT NULL COMMENT '" + CONTENTS_MIGRATED + "'";
+  private static final String QUERY_LEGACY = "SELECT `ID`, `contents` FROM `Kit` WHERE SUBSTRING(`contents`, 1, 2) <> 'SK'";
+  private static final String QUERY_CONTENTS_UPDATE = "UPDATE `Kit` SET `contents` = ? WHERE `ID` = ?";
+
   /**
    * The home mapper is used to load, list, create, modify and delete kits
    * @param database Connection to the SQL database for r/w
@@ -32,7 +55,54 @@ public class KitMapper extends ModelMapper< Kit > {
     super( database );
     inst = this;
 
-    registerTranslator( "contents", val -> stringifyItems( ( List< ItemStack > ) val ) );
+    // Contents are stored encoded, empty ones rebuild into an empty list
+    registerConverter( "contents", val -> encodeItems( ( List< ItemStack > ) val ), ( rs, column ) -> {
+      byte[] contents = rs.getBytes( column );
+      return contents == null || contents.length == 0 ? new ArrayList<>() : rebuildItems( contents );
+    } );
+  }
+
+  /**
+   * Build the table, then migrate contents of older versions to the binary codec, once
+   * @throws Exception Error on execution
+   */
+  @Override
+  public void buildTable() throws Exception {
+    super.buildTable();
+
+    // Already migrated, no need to scan the table again
+    Pair< String, String > column = database.fetch( QUERY_CONTENTS_TYPE, rs -> rs.next() ? new Pair<>( rs.getString( 1 ), rs.getString( 2 ) ) : null );
+    if( column == null || CONTENTS_MIGRATED.equals( column.getValue() ) )
+      return;
+
+    // Contents used to be stored as text, the bytes survive the type change
+    String type = column.getKey();
+    if( !type.equalsIgnoreCase( "mediumblob" ) ) {
+      database.executeUpdate( QUERY_CONTENTS_ALTER );
+      SLogging.getInst().log( "Changed the kit contents column to binary!", LogLevel.INFO );
+    }
+
+    // Re-encode all rows still holding base64 data
+    List< Object[] > migrated = database.fetch( QUERY_LEGACY, rs -> {
+      List< Object[] > rows = new ArrayList<>();
+      while( rs.next() ) {
+        try {
+          rows.add( new Object[] { ItemCodec.encode( ItemCodec.decode( rs.getBytes( "contents" ) ) ), rs.getInt( "ID" ) } );
+        } catch ( Exception e ) {
+          SLogging.getInst().log( "Error while migrating the contents of kit " + rs.getInt( "ID" ) + "!", LogLevel.ERROR );
+          SLogging.getInst().log( e );
+        }
+      }
+      return rows;
+    } );
+
+    if( migrated.size() > 0 ) {
+      database.transaction( conn -> database.executeBatch( conn, QUERY_CONTENTS_UPDATE, migrated ) );
+      SLogging.getInst().log( "Migrated the contents of " + migrated.size() + " kits to the binary format!", LogLevel.INFO );
+    }
+
+    // Only marked after all rows have been written, an interrupted migration runs again on the next start
+    database.executeUpdate( QUERY_CONTENTS_MIGRATED );
   }
 
   /**
@@ -40,7 +110,13 @@ public class KitMapper extends ModelMapper< Kit > {
    * @param kit Kit model to add
    * @return ActionStatus as the exit code
    */
-  public ActionResult addKit( Kit kit ) { return write( kit, false ); }
+  public ActionResult addKit( Kit kit ) {
+    ActionResult result = write( kit, false );
+    if( result == ActionResult.OK )
+      refresh( kit.getTitle() );
+
+    return result;
+  }
 
   /**
    * Delete a kit by it's name
@@ -48,7 +124,15 @@ public class KitMapper extends ModelMapper< Kit > {
    * @return ActionStatus as the exit code
    */
   public ActionResult removeKit( String name ) {
-    return delete( Collections.singletonList( getByName( name ) ) );
+    // Deleting only needs the metadata, no need to decode contents
+    KitCatalog catalog = KitCatalog.getInst();
+    Kit target = catalog.isLoaded() ? catalog.getByName( name ) : getByName( name );
+
+    ActionResult result = delete( Collections.singletonList( target ) );
+    if( result == ActionResult.OK )
+      catalog.remove( name );
+
+    return result;
   }
 
   /**
@@ -57,7 +141,37 @@ public class KitMapper extends ModelMapper< Kit > {
    * @return ActionStatus as the exit code
    */
   public ActionResult updateKit( Kit kit ) {
-    return write( kit, true );
+    // Only changed columns are sent, unchanged contents don't get re-encoded
+    ActionResult result = writeChanges( kit );
+    if( result == ActionResult.OK )
+      refresh( kit.getTitle() );
+
+    return result;
+  }
+
+  /**
+   * Re-read a kit into the catalog after it has been written, so the catalog
+   * knows it's generated ID and decodes the new contents on next use
+   * @param name Title of the kit
+   */
+  private void refresh( String name ) {
+    KitCatalog catalog = KitCatalog.getInst();
+    if( !catalog.isLoaded() )
+      return;
+
+    try {
+      List< Pair< Kit, byte[] > > raw = database.fetch( QUERY_BY_TITLE, this::readRaw, name );
+      if( raw.size() > 0 )
+        catalog.put( raw.get( 0 ).getKey(), raw.get( 0 ).getValue() );
+      else
+        catalog.remove( name );
+    } catch ( Exception e ) {
+      SLogging.getInst().log( "Error while refreshing a cached kit!", LogLevel.ERROR );
+      SLogging.getInst().log( e );
+
+      // Better ask the database than serve an outdated version
+      catalog.remove( name );
+    }
   }
 
   /**
@@ -66,21 +180,13 @@ public class KitMapper extends ModelMapper< Kit > {
    * @return Kit if found, null otherwise
    */
   public Kit getByName( String name ) {
-    try {
-      // Fetch result to get only the target player's home with corresponding name
-      List< Kit > result = read( database.fetchResult(
-          "SELECT * FROM `Kit`" +
-          "WHERE `title` = ?",
-          name
-      ) );
+    // Served from the catalog once loaded
+    KitCatalog catalog = KitCatalog.getInst();
+    if( catalog.isLoaded() )
+      return withContents( catalog.getByName( name ) );
 
-      // There can just be one result since UUID & name are the key
-      return result.size() > 0 ? result.get( 0 ) : null;
-    } catch ( Exception e ) {
-      SLogging.getInst().log( "Error while searching for a kit by it's name!", LogLevel.ERROR );
-      SLogging.getInst().log( e );
-      return null;
-    }
+    // Precompiled key lookup, there can just be one result since title is the key
+    return readByKey( name );
   }
 
   /**
@@ -89,13 +195,14 @@ public class KitMapper extends ModelMapper< Kit > {
    * @return Kit if exists, null otherwise
    */
   public Kit getById( int id ) {
+    // Served from the catalog once loaded
+    KitCatalog catalog = KitCatalog.getInst();
+    if( catalog.isLoaded() )
+      return withContents( catalog.getById( id ) );
+
     try {
       // Fetch result to get only the target player's home with corresponding name
-      List< Kit > result = read( database.fetchResult(
-          "SELECT * FROM `Kit`" +
-          "WHERE `ID` = ?",
-          id
-      ) );
+      List< Kit > result = database.fetch( QUERY_BY_ID, this::read, id );
 
       // There can just be one result since UUID & name are the key
       return result.size() > 0 ? result.get( 0 ) : null;
@@ -106,6 +213,33 @@ public class KitMapper extends ModelMapper< Kit > {
     }
   }
 
+  /**
+   * Get a kit's metadata by it's ID, without decoding it's contents if cached
+   * @param id ID of the target kit
+   * @return Kit if exists, null otherwise
+   */
+  public Kit getMetaById( int id ) {
+    KitCatalog catalog = KitCatalog.getInst();
+    return catalog.isLoaded() ? catalog.getById( id ) : getById( id );
+  }
+
+  /**
+   * Build a private copy of a cached kit, carrying clones of it's contents
+   * @param meta Metadata of the kit
+   * @return Copy with contents, null if no metadata provided
+   */
+  private Kit withContents( Kit meta ) {
+    if( meta == null )
+      return null;
+
+    Kit copy = new Kit( meta.getTitle(), meta.getDescription(), meta.getCooldown(), KitCatalog.getInst().getContents( meta.getID() ) );
+    bindID( copy, meta.getID() );
+
+    // Matches the stored kit, so only later changes get written
+    markClean( copy );
+    return copy;
+  }
+
   /**
    * List all kits existing in database
    * @param searchterm Searchterm for name search
@@ -113,14 +247,27 @@ public class KitMapper extends ModelMapper< Kit > {
    * @return List of existing kits
    */
   public List< Kit > listKits( String searchterm, boolean loadContent ) {
+    // Served from the catalog once loaded
+    KitCatalog catalog = KitCatalog.getInst();
+    if( catalog.isLoaded() ) {
+      List< Kit > metas = catalog.search( searchterm );
+      if( !loadContent )
+        return metas;
+
+      List< Kit > res = new ArrayList<>();
+      for( Kit meta : metas )
+        res.add( withContents( meta ) );
+      return res;
+    }
+
     try {
       // Fetch result to get only the searched for kits
       String cols = loadContent ? "*" : "ID, title, description, cooldown, stackCount, '' as contents";
-      return read( database.fetchResult(
+      return database.fetch(
         "SELECT " + cols + " FROM `Kit`" +
         "WHERE LOWER(`title`) LIKE LOWER(CONCAT('%', ?, '%'))",
-        searchterm
-      ) );
+        this::read, searchterm
+      );
     } catch ( Exception e ) {
       SLogging.getInst().log( "Error while listing kits!", LogLevel.ERROR );
       SLogging.getInst().log( e );
@@ -129,91 +276,161 @@ public class KitMapper extends ModelMapper< Kit > {
   }
 
   /**
-   * Read kits from the database
-   * @param rs ResultSet from an executed query
-   * @return List of generated kits
+   * List all kits containing the searchterm in their title along with the remaining
+   * cooldown of a player, within one query
+   * @param holder UUID of the player
+   * @param searchterm Searchterm for name search
+   * @return List of kits without contents, paired with their remaining cooldown, 0 if available
+   */
+  public List< Pair< Kit, Long > > listWithCooldowns( UUID holder, String searchterm ) {
+    try {
+      return database.fetch(
+        QUERY_WITH_COOLDOWNS, rs -> readWith( rs, row -> row.getLong( "remaining" ) ),
+        System.currentTimeMillis(), UUIDCodec.toBytes( holder ), searchterm
+      );
+    } catch ( Exception e ) {
+      SLogging.getInst().log( "Error while listing kits with their cooldowns!", LogLevel.ERROR );
+      SLogging.getInst().log( e );
+      return new ArrayList<>();
+    }
+  }
+
+  /**
+   * Async variant of {@link #listWithCooldowns(UUID, String)}
+   * @param holder UUID of the player
+   * @param searchterm Searchterm for name search
+   * @return Future of the list of kits paired with their remaining cooldown
+   */
+  public CompletableFuture< List< Pair< Kit, Long > > > listWithCooldownsAsync( UUID holder, String searchterm ) {
+    return async( () -> listWithCooldowns( holder, searchterm ) );
+  }
+
+  /**
+   * Async variant of {@link #addKit(Kit)}
+   * @param kit Kit model to add
+   * @return Future of the ActionResult
    */
+  public CompletableFuture< ActionResult > addKitAsync( Kit kit ) {
+    return async( () -> addKit( kit ) );
+  }
+
+  /**
+   * Async variant of {@link #removeKit(String)}
+   * @param name Name of the target kit
+   * @return Future of the ActionResult
+   */
+  public CompletableFuture< ActionResult > removeKitAsync( String name ) {
+    return async( () -> removeKit( name ) );
+  }
+
+  /**
+   * Async variant of {@link #updateKit(Kit)}
+   * @param kit Kit to change with new values in it
+   * @return Future of the ActionResult
+   */
+  public CompletableFuture< ActionResult > updateKitAsync( Kit kit ) {
+    return async( () -> updateKit( kit ) );
+  }
+
+  /**
+   * Async variant of {@link #getByName(String)}
+   * @param name Name of the kit
+   * @return Future of the kit, null if not found
+   */
+  public CompletableFuture< Kit > getByNameAsync( String name ) {
+    if( KitCatalog.getInst().isLoaded() )
+      return CompletableFuture.completedFuture( getByName( name ) );
+
+    return async( () -> getByName( name ) );
+  }
+
+  /**
+   * Async variant of {@link #listKits(String, boolean)}
+   * @param searchterm Searchterm for name search
+   * @param loadContent Whether or not to laod the actual contents
+   * @return Future of the list of existing kits
+   */
+  public CompletableFuture< List< Kit > > listKitsAsync( String searchterm, boolean loadContent ) {
+    if( KitCatalog.getInst().isLoaded() && !loadContent )
+      return CompletableFuture.completedFuture( listKits( searchterm, false ) );
+
+    return async( () -> listKits( searchterm, loadContent ) );
+  }
+
   @Override
-  public List< Kit > read( ResultSet rs ) {
-    List< Kit > buf = new ArrayList<>();
+  public List< String > getHotStatements() {
+    List< String > hot = super.getHotStatements();
+    hot.add( QUERY_BY_ID );
+    return hot;
+  }
 
+  /**
+   * List all kits from the database with their contents still encoded, for the catalog
+   * @return List of kits without contents, paired with their encoded contents, null on errors
+   */
+  public List< Pair< Kit, byte[] > > fetchAllRaw() {
     try {
-      // Loop result rows
-      while( rs.next() ) {
-
-        // Load contents base64 string, create fallback list
-        String contents = rs.getString( "contents" );
-        List< ItemStack > items = new ArrayList<>();
+      return database.fetch( QUERY_ALL, this::readRaw );
+    } catch ( Exception e ) {
+      SLogging.getInst().log( "Error while loading all kits!", LogLevel.ERROR );
+      SLogging.getInst().log( e );
+      return null;
+    }
+  }
 
-        // Rebuild kit from database, rebuild items seperately from the string - only if not masked off
-        if( !( contents == null || contents.trim().equals( "" ) ) )
-          items = rebuildItems( contents );
+  /**
+   * Read kits from the database without decoding their contents, failing as a whole
+   * @param rs ResultSet from an executed query
+   * @return List of kits paired with their encoded contents
+   * @throws SQLException Error while reading or mapping a row
+   */
+  private List< Pair< Kit, byte[] > > readRaw( ResultSet rs ) throws SQLException {
+    List< Pair< Kit, byte[] > > buf = new ArrayList<>();
 
-        Kit kit = new Kit( rs.getString( "title" ), rs.getString( "description" ), rs.getLong( "cooldown" ), items );
+    try {
+      while( rs.next() ) {
+        // Contents stay empty, the stack count is taken from the row
+        Kit kit = new Kit( rs.getString( "title" ), rs.getString( "description" ), rs.getLong( "cooldown" ), new ArrayList<>() );
         kit.setStackCount( rs.getInt( "stackCount" ) );
-        bindID( kit, rs );
+        bindID( kit, rs.getInt( "ID" ) );
 
-        buf.add( kit );
+        buf.add( new Pair<>( kit, rs.getBytes( "contents" ) ) );
       }
-    } catch ( Exception e ) {
-      SLogging.getInst().log( "Error while mapping read kits!", LogLevel.ERROR );
-      SLogging.getInst().log( e );
+    } catch ( RuntimeException e ) {
+      throw new SQLException( "Error while mapping read kits!", e );
     }
 
     return buf;
   }
 
   /**
-   * Turn a list of itemstacks into a base64 encoded string to write
+   * Turn a list of itemstacks into the binary format to write
    * @param items List of itemstacks
-   * @return Base64 encoded string containing item informations
+   * @return Encoded item informations, null on errors
    */
-  private String stringifyItems( List< ItemStack > items ) {
+  private byte[] encodeItems( List< ItemStack > items ) {
     try {
-      // Open write streams for string
-      ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-      BukkitObjectOutputStream dataOutput = new BukkitObjectOutputStream( outputStream );
-
-      // Write size and all individual itemstacks
-      dataOutput.writeInt( items.size() );
-      for( ItemStack item : items )
-        dataOutput.writeObject( item );
-
-      // Close resources and return encoded string
-      dataOutput.close();
-      return Base64Coder.encodeLines( outputStream.toByteArray() );
+      return ItemCodec.encode( items );
     } catch ( Exception e ) {
-      SLogging.getInst().log( "Error while stringifying a kit's items list!", LogLevel.ERROR );
+      SLogging.getInst().log( "Error while encoding a kit's items list!", LogLevel.ERROR );
       SLogging.getInst().log( e );
-      return "";
+      return null;
     }
   }
 
   /**
-   * Rebuild a list of items from an base64 encoded string
-   * @param data Base64 string of previously encoded list of itemstacks
+   * Rebuild a list of items from their encoded form, binary and legacy base64 are supported
+   * @param data Previously encoded list of itemstacks
    * @return List of itemstacks
    */
-  private List< ItemStack > rebuildItems( String data ) {
-    List< ItemStack > items = new ArrayList<>();
+  public List< ItemStack > rebuildItems( byte[] data ) {
     try {
-      // Open streams from string
-      ByteArrayInputStream inputStream = new ByteArrayInputStream( Base64Coder.decodeLines( data ) );
-      BukkitObjectInputStream dataInput = new BukkitObjectInputStream( inputStream );
-
-      // Read as many items into the list as the first integer suggests
-      int num = dataInput.readInt();
-      for( int i = 0; i < num; i++ )
-        items.add( ( ItemStack ) dataInput.readObject() );
-
-      // Close resources
-      dataInput.close();
+      return ItemCodec.decode( data );
     } catch ( Exception e ) {
       SLogging.getInst().log( "Error while unpacking a kit's items list!", LogLevel.ERROR );
       SLogging.getInst().log( e );
+      return new ArrayList<>();
     }
-
-    return items;
   }
 
   /**
@@ -1,27 +1,24 @@
 package at.sps.core.orm.mappers;
 
 import at.sps.core.Main;
+import at.sps.core.cache.WarpRegistry;
 import at.sps.core.orm.ActionResult;
 import at.sps.core.orm.MariaDB;
 import at.sps.core.orm.ModelMapper;
-import at.sps.core.orm.ObjectRebuilder;
 import at.sps.core.orm.models.Warp;
 import at.sps.core.utils.LogLevel;
 import at.sps.core.utils.SLogging;
-import org.bukkit.Bukkit;
-import org.bukkit.Location;
-import org.bukkit.World;
 
-import java.sql.ResultSet;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
-import java.util.UUID;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
 
 public class WarpMapper extends ModelMapper< Warp > {
 
   private static WarpMapper inst;
 
+  // Loads the whole table into the registry
+  private static final String QUERY_ALL = "SELECT * FROM `Warp`";
+
   /**
    * The warp-mapper is used to add, delete, re-set and list warps
    * @param database Connection to the SQL database for r/w
@@ -29,10 +26,6 @@ public class WarpMapper extends ModelMapper< Warp > {
   public WarpMapper( MariaDB database ) {
     super( database );
     inst = this;
-
-    // Register world translator to get the world's name, UUID translator to perform toString
-    registerTranslator( World.class, val -> ( ( World ) val ).getName() );
-    registerTranslator( UUID.class, Object::toString );
   }
 
   /**
@@ -41,7 +34,17 @@ public class WarpMapper extends ModelMapper< Warp > {
    * @return ActionResult which tells the status
    */
   public ActionResult addWarp( Warp warp ) {
-    return write( warp, false );
+    // Duplicates are known without asking the database
+    WarpRegistry registry = WarpRegistry.getInst();
+    if( registry.isLoaded() && registry.get( warp.getName() ) != null )
+      return ActionResult.ALREADY_EXISTENT;
+
+    // Write through into the registry
+    ActionResult result = write( warp, false );
+    if( result == ActionResult.OK )
+      registry.put( warp );
+
+    return result;
   }
 
   /**
@@ -50,7 +53,22 @@ public class WarpMapper extends ModelMapper< Warp > {
    * @return ActionResult which tells the status
    */
   public ActionResult removeWarp( String name ) {
-    return delete( Collections.singletonList( getByName( name ) ) );
+    WarpRegistry registry = WarpRegistry.getInst();
+    Warp target = getByName( name );
+
+    // Not existing at all, no need to ask the database
+    if( target == null && registry.isLoaded() )
+      return ActionResult.NON_EXISTENT;
+
+    // Warps added since loading don't know their generated ID yet
+    if( target != null && target.getID() == 0 )
+      target = readByKey( name );
+
+    ActionResult result = delete( Collections.singletonList( target ) );
+    if( result == ActionResult.OK )
+      registry.remove( name );
+
+    return result;
   }
 
   /**
@@ -59,7 +77,12 @@ public class WarpMapper extends ModelMapper< Warp > {
    * @return ActionResult which tells the status
    */
   public ActionResult updateWarp( Warp warp ) {
-    return write( warp, true );
+    // Only changed columns are sent
+    ActionResult result = writeChanges( warp );
+    if( result == ActionResult.OK )
+      WarpRegistry.getInst().put( warp );
+
+    return result;
   }
 
   /**
@@ -68,21 +91,34 @@ public class WarpMapper extends ModelMapper< Warp > {
    * @return Warp if exists, null otherwise
    */
   public Warp getByName( String name ) {
-    try {
-      // Fetch result to get only the target warp with corresponding name
-      List< Warp > result = read( database.fetchResult(
-        "SELECT * FROM `Warp`" +
-        "WHERE `name` = ?",
-        name
-      ) );
+    // Served from memory once loaded
+    WarpRegistry registry = WarpRegistry.getInst();
+    if( registry.isLoaded() )
+      return registry.get( name );
 
-      // There can just be one result since name is the primary key
-      return result.size() > 0 ? result.get( 0 ) : null;
-    } catch ( Exception e ) {
-      SLogging.getInst().log( "Error while searching for a warp by it's name!", LogLevel.ERROR );
-      SLogging.getInst().log( e );
-      return null;
+    // Precompiled key lookup, there can just be one result since name is the key
+    return readByKey( name );
+  }
+
+  /**
+   * Get multiple warps by their names within one query
+   * @param names Names of the target warps
+   * @return Existing warps by the name they have been requested with
+   */
+  public Map< String, Warp > getByNames( Collection< String > names ) {
+    // Served from memory once loaded
+    WarpRegistry registry = WarpRegistry.getInst();
+    if( registry.isLoaded() ) {
+      Map< String, Warp > warps = new HashMap<>();
+      for( String name : names ) {
+        Warp warp = registry.get( name );
+        if( warp != null )
+          warps.put( name, warp );
+      }
+      return warps;
     }
+
+    return getByKeys( names );
   }
 
   /**
@@ -91,13 +127,18 @@ public class WarpMapper extends ModelMapper< Warp > {
    * @return List of warps with corresponding name
    */
   public List< Warp > listWarps( String searchterm ) {
+    // Served from the registry's index once loaded
+    WarpRegistry registry = WarpRegistry.getInst();
+    if( registry.isLoaded() )
+      return registry.search( searchterm );
+
     try {
       // Fetch result to get only the warps containing the searchterm
-      return read( database.fetchResult(
+      return database.fetch(
         "SELECT * FROM `Warp`" +
         "WHERE LOWER(`name`) LIKE LOWER(CONCAT('%', ?, '%'))",
-        searchterm
-      ) );
+        this::read, searchterm
+      );
     } catch ( Exception e ) {
       SLogging.getInst().log( "Error while searching for warps by name!", LogLevel.ERROR );
       SLogging.getInst().log( e );
@@ -106,40 +147,68 @@ public class WarpMapper extends ModelMapper< Warp > {
   }
 
   /**
-   * Read warps from the database
-   * @param rs ResultSet from an executed query
-   * @return List of generated warps
+   * List all warps from the database, bypassing the registry
+   * @return List of all warps, null on errors
    */
-  @Override
-  public List< Warp > read( ResultSet rs ) {
-    List< Warp > buf = new ArrayList<>();
-
+  public List< Warp > fetchAll() {
     try {
-      // Loop result rows
-      while( rs.next() ) {
-        // Get the world by name
-        World w = Bukkit.getWorld( rs.getString( "world" ) );
-
-        // Rebuild location based on the world and coordinates from RS
-        Location loc = new ObjectRebuilder< Location >( Location.class, rs )
-                .addArgs( w )
-                .addColumns( "x", "y", "z", "yaw", "pitch" )
-                .build();
-
-        // Fetch uuid and generate warp object into buffer list
-        UUID uu = UUID.fromString( rs.getString( "creator" ) );
-        long creationDate = rs.getLong( "creationdate" );
-        Warp warp = new Warp( rs.getString( "name" ), loc, creationDate, uu );
-        bindID( warp, rs );
-
-        buf.add( warp );
-      }
+      return database.fetch( QUERY_ALL, this::readAll );
     } catch ( Exception e ) {
-      SLogging.getInst().log( "Error while mapping read warps!", LogLevel.ERROR );
+      SLogging.getInst().log( "Error while loading all warps!", LogLevel.ERROR );
       SLogging.getInst().log( e );
+      return null;
     }
+  }
+
+  /**
+   * Async variant of {@link #addWarp(Warp)}
+   * @param warp Warp to store
+   * @return Future of the ActionResult
+   */
+  public CompletableFuture< ActionResult > addWarpAsync( Warp warp ) {
+    return async( () -> addWarp( warp ) );
+  }
+
+  /**
+   * Async variant of {@link #removeWarp(String)}
+   * @param name The target warp's name
+   * @return Future of the ActionResult
+   */
+  public CompletableFuture< ActionResult > removeWarpAsync( String name ) {
+    return async( () -> removeWarp( name ) );
+  }
+
+  /**
+   * Async variant of {@link #updateWarp(Warp)}
+   * @param warp Warp to update in DB
+   * @return Future of the ActionResult
+   */
+  public CompletableFuture< ActionResult > updateWarpAsync( Warp warp ) {
+    return async( () -> updateWarp( warp ) );
+  }
+
+  /**
+   * Async variant of {@link #getByName(String)}
+   * @param name Name of the target warp
+   * @return Future of the warp, null if not found
+   */
+  public CompletableFuture< Warp > getByNameAsync( String name ) {
+    if( WarpRegistry.getInst().isLoaded() )
+      return CompletableFuture.completedFuture( getByName( name ) );
+
+    return async( () -> getByName( name ) );
+  }
+
+  /**
+   * Async variant of {@link #listWarps(String)}
+   * @param searchterm Searchterm for name search
+   * @return Future of the list of warps with corresponding name
+   */
+  public CompletableFuture< List< Warp > > listWarpsAsync( String searchterm ) {
+    if( WarpRegistry.getInst().isLoaded() )
+      return CompletableFuture.completedFuture( listWarps( searchterm ) );
 
-    return buf;
+    return async( () -> listWarps( searchterm ) );
   }
 
   /**
@@ -1,5 +1,6 @@
 package at.sps.core.orm.models;
 
+import at.sps.core.orm.Index;
 import at.sps.core.orm.MappableModel;
 import at.sps.core.orm.MapperColumn;
 import lombok.Getter;
@@ -9,6 +10,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
 
+@Index( columns = { "holder", "ID" } )
 public class Ban extends MappableModel {
 
   @Getter @Setter
@@ -47,6 +49,13 @@ public class Ban extends MappableModel {
   @MapperColumn( nullable = true )
   private String revokeReason;
 
+  /**
+   * Create an empty ban, only used by the mapper when reading from the database
+   */
+  private Ban() {
+    this.ipAddresses = new ArrayList<>();
+  }
+
   /**
    * Create a new permanent ban with a ban-reason for a player
    * @param holder Player to target this ban to
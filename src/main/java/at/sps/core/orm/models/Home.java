@@ -1,5 +1,6 @@
 package at.sps.core.orm.models;
 
+import at.sps.core.orm.Index;
 import at.sps.core.orm.MappableModel;
 import at.sps.core.orm.MapperColumn;
 import at.sps.core.orm.RebuilderColumns;
@@ -16,6 +17,7 @@ public class Home extends MappableModel {
     private String name;
 
     @Getter @Setter
+    @Index
     @MapperColumn( name = "uuid", key = true, length = "40" )
     private UUID playerUUID;
 
@@ -27,6 +29,11 @@ public class Home extends MappableModel {
     @MapperColumn
     private long creationDate;
 
+    /**
+     * Create an empty home, which the mapper fills when reading it from the database
+     */
+    private Home() {}
+
     /**
      * Create a new home based on the holder's uuid, a name and the pre-existing
      * bukkit location object
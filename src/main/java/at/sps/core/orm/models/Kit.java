@@ -6,6 +6,7 @@ import lombok.Getter;
 import lombok.Setter;
 import org.bukkit.inventory.ItemStack;
 
+import java.util.ArrayList;
 import java.util.List;
 
 public class Kit extends MappableModel {
@@ -27,9 +28,16 @@ public class Kit extends MappableModel {
   private int stackCount;
 
   @Getter
-  @MapperColumn
+  @MapperColumn( type = "MEDIUMBLOB" )
   private List< ItemStack > contents;
 
+  /**
+   * Create an empty kit for the mapper, which fills in all columns when reading
+   */
+  private Kit() {
+    this.contents = new ArrayList<>();
+  }
+
   /**
    * Create a new kit that players can use after the cooldown has been completed on
    * a regular basis, this contains a title, a description, the cooldown in milliseconds
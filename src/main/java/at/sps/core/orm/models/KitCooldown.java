@@ -22,6 +22,11 @@ public class KitCooldown extends MappableModel {
   @MapperColumn
   private long lastUse;
 
+  /**
+   * Create an empty cooldown, the mapper fills it in when reading from the database
+   */
+  private KitCooldown() {}
+
   /**
    * Create a new kit cooldown for a specific player targetting a specific kit by it's ID
    * @param holder UUID of the player using the kit
@@ -39,7 +44,7 @@ public class KitCooldown extends MappableModel {
    * @return Remaining time in ms or null if the kit doesn't exist anymore
    */
   public Long getRemainder() {
-    Kit target = KitMapper.getInst().getById( kitID );
+    Kit target = KitMapper.getInst().getMetaById( kitID );
 
     // This kit has not been found, thus return null
     if( target == null )
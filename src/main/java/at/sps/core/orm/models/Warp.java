@@ -27,6 +27,11 @@ public class Warp extends MappableModel {
   @MapperColumn( length = "40" )
   private UUID creator;
 
+  /**
+   * Create an empty warp, only used by the mapper when reading from the database
+   */
+  private Warp() {}
+
   /**
    * Create a new home based on the holder's uuid, a name and the pre-existing
    * bukkit location object
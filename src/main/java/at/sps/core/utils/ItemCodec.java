@@ -0,0 +1,144 @@
+package at.sps.core.utils;
+
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.util.io.BukkitObjectInputStream;
+import org.yaml.snakeyaml.external.biz.base64Coder.Base64Coder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+public class ItemCodec {
+
+  // Header of the binary format, legacy data always starts with the base64 of the java stream header (rO0)
+  private static final byte[] MAGIC = { 'S', 'K' };
+  private static final byte VERSION = 1;
+
+  // NBT type ID of compounds, used to read lists of them
+  private static final int NBT_COMPOUND = 10;
+
+  // NMS and CraftBukkit handles, resolved once
+  private static Method asNMSCopy, asBukkitCopy, save, createStack, compoundSet, compoundGetList, listAdd, listSize, listGet, writeCompressed, readCompressed;
+  private static Constructor< ? > newCompound, newList;
+
+  /**
+   * Encode a list of items into the binary format, which is a short header
+   * followed by a gzip compressed NBT compound holding all items
+   * @param items Items to encode
+   * @return Encoded bytes
+   * @throws Exception Error while encoding
+   */
+  public static byte[] encode( List< ItemStack > items ) throws Exception {
+    resolve();
+
+    // Save every item as a compound into a list, air has no NMS representation
+    Object list = newList.newInstance();
+    for( ItemStack item : items ) {
+      Object nms = asNMSCopy.invoke( null, item );
+      if( nms != null )
+        listAdd.invoke( list, save.invoke( nms, newCompound.newInstance() ) );
+    }
+
+    Object root = newCompound.newInstance();
+    compoundSet.invoke( root, "items", list );
+
+    // Header first, then the compressed compound
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    out.write( MAGIC );
+    out.write( VERSION );
+    writeCompressed.invoke( null, root, out );
+    return out.toByteArray();
+  }
+
+  /**
+   * Decode a list of items, either from the binary format or from the legacy
+   * base64 encoded java serialization
+   * @param data Encoded bytes
+   * @return Decoded items
+   * @throws Exception Error while decoding
+   */
+  public static List< ItemStack > decode( byte[] data ) throws Exception {
+    if( !isBinary( data ) )
+      return decodeLegacy( new String( data, StandardCharsets.US_ASCII ) );
+
+    if( data[ MAGIC.length ] != VERSION )
+      throw new IllegalArgumentException( "Unknown item codec version " + data[ MAGIC.length ] + "!" );
+
+    resolve();
+
+    // Skip the header, read the compressed compound
+    ByteArrayInputStream in = new ByteArrayInputStream( data, MAGIC.length + 1, data.length - MAGIC.length - 1 );
+    Object list = compoundGetList.invoke( readCompressed.invoke( null, in ), "items", NBT_COMPOUND );
+
+    int size = ( int ) listSize.invoke( list );
+    List< ItemStack > items = new ArrayList<>( size );
+    for( int i = 0; i < size; i++ )
+      items.add( ( ItemStack ) asBukkitCopy.invoke( null, createStack.invoke( null, listGet.invoke( list, i ) ) ) );
+
+    return items;
+  }
+
+  /**
+   * Check whether or not data is in the binary format
+   * @param data Encoded bytes
+   * @return True if binary, false if legacy
+   */
+  public static boolean isBinary( byte[] data ) {
+    return data != null && data.length > MAGIC.length && data[ 0 ] == MAGIC[ 0 ] && data[ 1 ] == MAGIC[ 1 ];
+  }
+
+  /**
+   * Decode the legacy format, base64 of a bukkit object stream
+   * @param data Base64 string
+   * @return Decoded items
+   * @throws Exception Error while decoding
+   */
+  private static List< ItemStack > decodeLegacy( String data ) throws Exception {
+    List< ItemStack > items = new ArrayList<>();
+
+    // Read as many items into the list as the first integer suggests
+    try ( BukkitObjectInputStream dataInput = new BukkitObjectInputStream( new ByteArrayInputStream( Base64Coder.decodeLines( data ) ) ) ) {
+      int num = dataInput.readInt();
+      for( int i = 0; i < num; i++ )
+        items.add( ( ItemStack ) dataInput.readObject() );
+    }
+
+    return items;
+  }
+
+  /**
+   * Resolve all needed NMS and CraftBukkit members of the running server version
+   * @throws Exception Members could not be found
+   */
+  private static synchronized void resolve() throws Exception {
+    if( readCompressed != null )
+      return;
+
+    Class< ? > craftStack = Class.forName( "org.bukkit.craftbukkit." + NMSHelper.getVersion() + ".inventory.CraftItemStack" );
+    Class< ? > nmsStack = NMSHelper.getNMSClass( "ItemStack" );
+    Class< ? > nbtBase = NMSHelper.getNMSClass( "NBTBase" );
+    Class< ? > compound = NMSHelper.getNMSClass( "NBTTagCompound" );
+    Class< ? > list = NMSHelper.getNMSClass( "NBTTagList" );
+    Class< ? > streams = NMSHelper.getNMSClass( "NBTCompressedStreamTools" );
+
+    asNMSCopy = craftStack.getMethod( "asNMSCopy", ItemStack.class );
+    asBukkitCopy = craftStack.getMethod( "asBukkitCopy", nmsStack );
+    save = nmsStack.getMethod( "save", compound );
+    createStack = nmsStack.getMethod( "createStack", compound );
+    newCompound = compound.getConstructor();
+    compoundSet = compound.getMethod( "set", String.class, nbtBase );
+    compoundGetList = compound.getMethod( "getList", String.class, int.class );
+    newList = list.getConstructor();
+    listAdd = list.getMethod( "add", nbtBase );
+    listSize = list.getMethod( "size" );
+    listGet = list.getMethod( "get", int.class );
+    writeCompressed = streams.getMethod( "a", compound, OutputStream.class );
+    readCompressed = streams.getMethod( "a", InputStream.class );
+  }
+}
@@ -0,0 +1,82 @@
+package at.sps.core.utils;
+
+import at.sps.core.Main;
+import at.sps.core.orm.MariaDB;
+import org.bukkit.Bukkit;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+public class SyncExecutor implements Executor {
+
+  private static SyncExecutor inst;
+
+  private SyncExecutor() {
+    inst = this;
+  }
+
+  /**
+   * Execute a task on the server's main thread, runs right away if
+   * already on the main thread, on the next tick otherwise
+   * @param task Task to execute
+   */
+  @Override
+  public void execute( Runnable task ) {
+    if( Bukkit.isPrimaryThread() )
+      task.run();
+    else
+      Bukkit.getScheduler().runTask( Main.getInst(), task );
+  }
+
+  /**
+   * Resume on the main thread once the future completes, for teleports, inventory
+   * changes or messages. Failed futures and callback errors get logged
+   * @param future Future to wait for
+   * @param callback Callback which receives the result on the main thread
+   */
+  public < T > void resume( CompletableFuture< T > future, ParamCall< T > callback ) {
+    resume( future, callback, null );
+  }
+
+  /**
+   * Resume on the main thread once the future completes, just like {@link #resume(CompletableFuture, ParamCall)},
+   * but failures are also handed to a callback, so the user can be told about them
+   * @param future Future to wait for
+   * @param callback Callback which receives the result on the main thread
+   * @param failure Callback which receives the error on the main thread, may be null
+   */
+  public < T > void resume( CompletableFuture< T > future, ParamCall< T > callback, ParamCall< Throwable > failure ) {
+    future.whenCompleteAsync( ( result, error ) -> {
+      if( error != null ) {
+        // Rejected tasks are expected under load, no need for a trace
+        if( MariaDB.isBusy( error ) )
+          SLogging.getInst().log( "An async task has been rejected, the SQL-DB workers are busy!", LogLevel.WARNING );
+        else {
+          SLogging.getInst().log( "Error while executing an async task!", LogLevel.ERROR );
+          SLogging.getInst().log( error instanceof Exception ? ( Exception ) error : new Exception( error ) );
+        }
+
+        if( failure != null )
+          failure.call( error );
+        return;
+      }
+
+      try {
+        callback.call( result );
+      } catch ( Exception e ) {
+        SLogging.getInst().log( "Error while resuming an async task on the main thread!", LogLevel.ERROR );
+        SLogging.getInst().log( e );
+      }
+    }, this );
+  }
+
+  /**
+   * Singleton instance getter for the main thread executor
+   */
+  public static SyncExecutor getInst() {
+    if( inst == null )
+      return new SyncExecutor();
+
+    return inst;
+  }
+}